@@ -0,0 +1,12 @@
+package guru.sfg.beer.order.service.admission;
+
+/**
+ * Outcome of asking whether a new order may enter the saga.
+ */
+public enum AdmissionDecision {
+    ADMITTED, IN_FLIGHT_LIMIT, QUEUE_DEPTH_LIMIT;
+
+    public boolean isAdmitted() {
+        return this == ADMITTED;
+    }
+}
@@ -0,0 +1,181 @@
+package guru.sfg.beer.order.service.admission;
+
+import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.metrics.OrderStatusGauges;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.activemq.artemis.api.core.management.ResourceNames;
+import org.apache.activemq.artemis.api.jms.ActiveMQJMSClient;
+import org.apache.activemq.artemis.api.jms.management.JMSManagementHelper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.JmsException;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether new orders are admitted, based on the number of orders in flight in the saga and the
+ * depth of the saga queues.
+ *
+ * Both inputs are read from counters kept up to date off the request path: the in flight count from
+ * committed status changes and the queue depth from the message counts the broker reports for the saga
+ * queues on its management address, so admitting an order never touches the database or the broker.
+ */
+@Slf4j
+@Component
+public class OrderAdmissionController {
+    static final List<String> SAGA_QUEUES = List.of(JmsConfig.VALIDATE_ORDER_QUEUE,
+            JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE, JmsConfig.ALLOCATE_ORDER_QUEUE,
+            JmsConfig.ALLOCATE_ORDER_RESPONSE_QUEUE);
+
+    private final OrderStatusGauges orderStatusGauges;
+    private final JmsTemplate jmsTemplate;
+    private final MeterRegistry meterRegistry;
+    private final long maxInFlight;
+    private final long maxQueueDepth;
+    private final Duration retryAfter;
+    private final String managementAddress;
+    private final Duration managementTimeout;
+
+    private final AtomicLong queueDepth = new AtomicLong();
+    private volatile AdmissionDecision state = AdmissionDecision.ADMITTED;
+
+    public OrderAdmissionController(OrderStatusGauges orderStatusGauges, JmsTemplate jmsTemplate,
+                                    BeerOrderMetrics beerOrderMetrics,
+                                    @Value("${sfg.order.admission.max-in-flight:5000}") long maxInFlight,
+                                    @Value("${sfg.order.admission.max-queue-depth:10000}") long maxQueueDepth,
+                                    @Value("${sfg.order.admission.retry-after:5s}") Duration retryAfter,
+                                    @Value("${sfg.order.admission.management-address:activemq.management}")
+                                            String managementAddress,
+                                    @Value("${sfg.order.admission.management-timeout:2s}")
+                                            Duration managementTimeout) {
+        this.orderStatusGauges = orderStatusGauges;
+        this.jmsTemplate = jmsTemplate;
+        this.meterRegistry = beerOrderMetrics.getMeterRegistry();
+        this.maxInFlight = maxInFlight;
+        this.maxQueueDepth = maxQueueDepth;
+        this.retryAfter = retryAfter;
+        this.managementAddress = managementAddress;
+        this.managementTimeout = managementTimeout;
+
+        Gauge.builder(BeerOrderMetrics.PREFIX + ".admission.in.flight", orderStatusGauges, OrderStatusGauges::inFlight)
+                .description("Orders in flight in the saga as seen by admission control")
+                .register(meterRegistry);
+        Gauge.builder(BeerOrderMetrics.PREFIX + ".admission.queue.depth", queueDepth, AtomicLong::get)
+                .description("Messages waiting on the saga queues")
+                .register(meterRegistry);
+        Gauge.builder(BeerOrderMetrics.PREFIX + ".admission.shedding", this, controller -> controller.state.isAdmitted() ? 0 : 1)
+                .description("1 while new orders are being rejected")
+                .register(meterRegistry);
+    }
+
+    public AdmissionDecision tryAdmit() {
+        return tryAdmit(1);
+    }
+
+    /**
+     * Admits a number of orders at once, only if all of them fit under the in flight limit.
+     */
+    public AdmissionDecision tryAdmit(int orders) {
+        AdmissionDecision decision;
+
+        if (orderStatusGauges.inFlight() + orders > maxInFlight) {
+            decision = AdmissionDecision.IN_FLIGHT_LIMIT;
+        } else if (queueDepth.get() >= maxQueueDepth) {
+            decision = AdmissionDecision.QUEUE_DEPTH_LIMIT;
+        } else {
+            decision = AdmissionDecision.ADMITTED;
+        }
+
+        if (state != decision) {
+            log.info("Order admission changed from " + state + " to " + decision);
+            state = decision;
+        }
+
+        if (!decision.isAdmitted()) {
+            Counter.builder(BeerOrderMetrics.PREFIX + ".admission.rejected")
+                    .description("Orders rejected by admission control")
+                    .tag("reason", decision.name())
+                    .register(meterRegistry)
+                    .increment(orders);
+        }
+
+        return decision;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Scheduled(fixedDelayString = "${sfg.order.admission.queue-depth-interval-ms:1000}")
+    public void refreshQueueDepth() {
+        try {
+            Long depth = jmsTemplate.execute(this::sagaQueueDepth, true);
+            queueDepth.set(depth != null ? depth : 0);
+        } catch (JmsException e) {
+            log.warn("Unable to read the saga queue depth: " + e.getMessage());
+            queueDepth.set(0);
+        }
+    }
+
+    /**
+     * Sums the message counts of the saga queues, asking the broker through its management address, so no
+     * message is read and the cost does not grow with the backlog.
+     */
+    private long sagaQueueDepth(Session session) throws JMSException {
+        Queue managementQueue = ActiveMQJMSClient.createQueue(managementAddress);
+        TemporaryQueue replyQueue = session.createTemporaryQueue();
+        long depth = 0;
+
+        try (MessageProducer producer = session.createProducer(managementQueue);
+             MessageConsumer consumer = session.createConsumer(replyQueue)) {
+            for (String queue : SAGA_QUEUES) {
+                Message request = session.createMessage();
+                request.setJMSReplyTo(replyQueue);
+                JMSManagementHelper.putAttribute(request, ResourceNames.QUEUE + queue, "messageCount");
+                producer.send(request);
+
+                Message reply = consumer.receive(managementTimeout.toMillis());
+
+                if (reply == null || !JMSManagementHelper.hasOperationSucceeded(reply)) {
+                    log.warn("No message count for queue " + queue + " from the broker");
+                    continue;
+                }
+
+                depth += messageCount(reply);
+            }
+        } finally {
+            replyQueue.delete();
+        }
+
+        return depth;
+    }
+
+    private static long messageCount(Message reply) throws JMSException {
+        try {
+            return ((Number) JMSManagementHelper.getResult(reply)).longValue();
+        } catch (Exception e) {
+            if (e instanceof JMSException) {
+                throw (JMSException) e;
+            }
+
+            JMSException jmsException = new JMSException("Unreadable message count: " + e.getMessage());
+            jmsException.setLinkedException(e);
+            throw jmsException;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package guru.sfg.beer.order.service.admission;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Rejects order placement with 503 and Retry-After while admission control is shedding load.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderAdmissionInterceptor implements HandlerInterceptor {
+
+    private final OrderAdmissionController orderAdmissionController;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (!HttpMethod.POST.matches(request.getMethod())) {
+            return true;
+        }
+
+        AdmissionDecision decision = orderAdmissionController.tryAdmit();
+
+        if (decision.isAdmitted()) {
+            return true;
+        }
+
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                Long.toString(Math.max(1, orderAdmissionController.getRetryAfter().getSeconds())));
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Order placement is overloaded: " + decision);
+        return false;
+    }
+}
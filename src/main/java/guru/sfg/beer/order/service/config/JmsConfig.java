@@ -1,12 +1,18 @@
 package guru.sfg.beer.order.service.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jms.DefaultJmsListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
 import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
 import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.jms.support.converter.MessageType;
 
+import javax.jms.ConnectionFactory;
+
 /**
  * Created by jt on 2019-07-20.
  */
@@ -18,6 +24,11 @@ public class JmsConfig {
     public static final String ALLOCATE_ORDER_RESPONSE_QUEUE = "allocate-order-response";
     public static final String ALLOCATE_FAILURE_QUEUE = "allocation-failure";
     public static final String DEALLOCATE_ORDER_QUEUE = "deallocate-order" ;
+    public static final String INVENTORY_REPLENISHED_QUEUE = "inventory-replenished";
+
+    public static final String RESULT_LISTENER_FACTORY = "resultListenerContainerFactory";
+    public static final String VALIDATE_ORDER_RESPONSE_LISTENER = "validateOrderResponseListener";
+    public static final String ALLOCATE_ORDER_RESPONSE_LISTENER = "allocateOrderResponseListener";
 
     @Bean // Serialize message content to json using TextMessage
     public MessageConverter jacksonJmsMessageConverter(ObjectMapper objectMapper) {
@@ -27,4 +38,20 @@ public class JmsConfig {
         converter.setObjectMapper(objectMapper);
         return converter;
     }
+
+    /**
+     * Result listeners run a fixed number of consumers holding cached consumers, so the broker keeps each
+     * message group (order id) pinned to one consumer: results for one order are handled in order while
+     * different orders spread across all consumers.
+     */
+    @Bean
+    public DefaultJmsListenerContainerFactory resultListenerContainerFactory(
+            DefaultJmsListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${sfg.order.jms.result-concurrency:4}") int concurrency) {
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrency(concurrency + "-" + concurrency);
+        factory.setCacheLevel(DefaultMessageListenerContainer.CACHE_CONSUMER);
+        return factory;
+    }
 }
@@ -0,0 +1,27 @@
+package guru.sfg.beer.order.service.config;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Lets a handler give its own asynchronous processing, such as a streamed response body, a timeout other
+ * than the global {@code spring.mvc.async.request-timeout}, by setting {@link #TIMEOUT_ATTRIBUTE} on the
+ * request.
+ */
+public class RequestAsyncTimeoutInterceptor implements CallableProcessingInterceptor {
+    public static final String TIMEOUT_ATTRIBUTE = RequestAsyncTimeoutInterceptor.class.getName() + ".timeout";
+
+    @Override
+    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+        Object timeout = request.getAttribute(TIMEOUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+
+        if (timeout instanceof Duration && request instanceof AsyncWebRequest) {
+            ((AsyncWebRequest) request).setTimeout(((Duration) timeout).toMillis());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package guru.sfg.beer.order.service.config;
+
+import guru.sfg.beer.order.service.admission.OrderAdmissionInterceptor;
+import guru.sfg.beer.order.service.ratelimit.CustomerRateLimitInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web Configuration - order API interceptors
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+    public static final String ORDERS_PATH = "/api/v1/customers/*/orders";
+    public static final String BULK_ORDERS_PATH = "/api/v1/customers/*/orders:bulk";
+
+    private final CustomerRateLimitInterceptor customerRateLimitInterceptor;
+    private final OrderAdmissionInterceptor orderAdmissionInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // per customer limits first, so one customer's flood is turned away before global admission. A bulk
+        // request is charged here like a single placement, its orders against the bulk budget as they are saved
+        registry.addInterceptor(customerRateLimitInterceptor).addPathPatterns(ORDERS_PATH, BULK_ORDERS_PATH);
+        registry.addInterceptor(orderAdmissionInterceptor).addPathPatterns(ORDERS_PATH, BULK_ORDERS_PATH);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new RequestAsyncTimeoutInterceptor());
+    }
+}
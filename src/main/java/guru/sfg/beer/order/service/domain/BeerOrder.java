@@ -24,9 +24,13 @@ import org.hibernate.annotations.Fetch;
 import org.hibernate.annotations.FetchMode;
 
 import javax.persistence.CascadeType;
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import java.sql.Timestamp;
 import java.util.Set;
 import java.util.UUID;
@@ -37,6 +41,12 @@ import java.util.UUID;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "ix_beer_order_modified", columnList = "lastModifiedDate, id"),
+        @Index(name = "ix_beer_order_created", columnList = "createdDate, id"),
+        @Index(name = "ix_beer_order_status_modified", columnList = "orderStatus, lastModifiedDate, id")
+}, uniqueConstraints = @UniqueConstraint(name = "uk_beer_order_placement_key",
+        columnNames = {"customer_id", "placement_key"}))
 @NoArgsConstructor
 public class BeerOrder extends BaseEntity {
 
@@ -63,4 +73,17 @@ public class BeerOrder extends BaseEntity {
 
     private BeerOrderStatusEnum orderStatus = BeerOrderStatusEnum.NEW;
     private String orderStatusCallbackUrl;
+
+    /**
+     * Idempotency key the order was placed with, unique per customer. The Idempotency-Key header when the
+     * client sent one, otherwise the customerRef.
+     */
+    @Column(name = "placement_key")
+    private String placementKey;
+
+    /**
+     * Times the stuck order sweeper re-sent the request for the current status, null when it never has.
+     */
+    @Column(name = "redrive_attempts")
+    private Integer redriveAttempts;
 }
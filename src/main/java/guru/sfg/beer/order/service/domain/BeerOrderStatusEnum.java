@@ -20,5 +20,37 @@ package guru.sfg.beer.order.service.domain;
 public enum BeerOrderStatusEnum {
     NEW, VALIDATED, VALIDATION_PENDING, VALIDATION_EXCEPTION,
     ALLOCATION_PENDING, ALLOCATED, ALLOCATION_EXCEPTION, CANCELLED,
-    PENDING_INVENTORY, PICKED_UP, DELIVERED, DELIVERY_EXCEPTION
+    PENDING_INVENTORY, PICKED_UP, DELIVERED, DELIVERY_EXCEPTION;
+
+    /**
+     * True for the end states of the order state machine.
+     */
+    public boolean isFinal() {
+        switch (this) {
+            case PICKED_UP:
+            case DELIVERED:
+            case CANCELLED:
+            case DELIVERY_EXCEPTION:
+            case VALIDATION_EXCEPTION:
+            case ALLOCATION_EXCEPTION:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * True while the order is still being worked by the validation and allocation saga.
+     */
+    public boolean isInFlight() {
+        switch (this) {
+            case NEW:
+            case VALIDATION_PENDING:
+            case VALIDATED:
+            case ALLOCATION_PENDING:
+                return true;
+            default:
+                return false;
+        }
+    }
 }
@@ -0,0 +1,96 @@
+package guru.sfg.beer.order.service.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Type;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.MapKeyColumn;
+import javax.persistence.Version;
+import java.sql.Timestamp;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compacted order totals of a customer. Only the summary compaction job writes it.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+public class CustomerOrderSummary {
+
+    public CustomerOrderSummary(UUID customerId) {
+        this.customerId = customerId;
+    }
+
+    @Id
+    @Type(type="org.hibernate.type.UUIDCharType")
+    @Column(length = 36, columnDefinition = "varchar(36)", updatable = false, nullable = false)
+    private UUID customerId;
+
+    @Version
+    private Long version;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "customer_order_summary_status")
+    @MapKeyColumn(name = "order_status")
+    @Column(name = "order_count")
+    private Map<BeerOrderStatusEnum, Long> statusCounts = new HashMap<>();
+
+    private long totalLines;
+    private long totalQuantityOrdered;
+    private long totalQuantityAllocated;
+    private Timestamp lastOrderDate;
+
+    /**
+     * When the summary was last rebuilt from the customer's orders, null if it only holds folded deltas.
+     */
+    private Timestamp backfilledDate;
+
+    @UpdateTimestamp
+    private Timestamp lastModifiedDate;
+
+    public void apply(CustomerOrderSummaryDelta delta) {
+        if (delta.getPreviousStatus() != null) {
+            statusCounts.merge(delta.getPreviousStatus(), -1L, Long::sum);
+        }
+        if (delta.getOrderStatus() != null) {
+            statusCounts.merge(delta.getOrderStatus(), 1L, Long::sum);
+        }
+
+        totalLines += delta.getLineDelta();
+        totalQuantityOrdered += delta.getQuantityOrderedDelta();
+        totalQuantityAllocated += delta.getQuantityAllocatedDelta();
+
+        if (delta.getOrderPlacedDate() != null
+                && (lastOrderDate == null || delta.getOrderPlacedDate().after(lastOrderDate))) {
+            lastOrderDate = delta.getOrderPlacedDate();
+        }
+    }
+
+    /**
+     * Detached copy, for applying pending deltas on read without touching the persistent summary.
+     */
+    public CustomerOrderSummary copy() {
+        CustomerOrderSummary copy = new CustomerOrderSummary(customerId);
+        copy.setVersion(version);
+        copy.setStatusCounts(statusCounts.isEmpty() ? new HashMap<>() : new EnumMap<>(statusCounts));
+        copy.setTotalLines(totalLines);
+        copy.setTotalQuantityOrdered(totalQuantityOrdered);
+        copy.setTotalQuantityAllocated(totalQuantityAllocated);
+        copy.setLastOrderDate(lastOrderDate);
+        copy.setBackfilledDate(backfilledDate);
+        copy.setLastModifiedDate(lastModifiedDate);
+        return copy;
+    }
+}
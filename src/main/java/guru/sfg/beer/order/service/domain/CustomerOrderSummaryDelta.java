@@ -0,0 +1,59 @@
+package guru.sfg.beer.order.service.domain;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * One change to a customer's order summary, written in the transaction that made the change. Deltas are
+ * insert only, so concurrent transitions never contend; they are folded into {@link CustomerOrderSummary}
+ * by the compaction job.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "ix_summary_delta_customer", columnList = "customerId"))
+public class CustomerOrderSummaryDelta extends BaseEntity {
+
+    @Builder
+    public CustomerOrderSummaryDelta(UUID customerId, BeerOrderStatusEnum previousStatus,
+                                     BeerOrderStatusEnum orderStatus, int lineDelta, int quantityOrderedDelta,
+                                     int quantityAllocatedDelta, Timestamp orderPlacedDate) {
+        this.customerId = customerId;
+        this.previousStatus = previousStatus;
+        this.orderStatus = orderStatus;
+        this.lineDelta = lineDelta;
+        this.quantityOrderedDelta = quantityOrderedDelta;
+        this.quantityAllocatedDelta = quantityAllocatedDelta;
+        this.orderPlacedDate = orderPlacedDate;
+    }
+
+    @Type(type="org.hibernate.type.UUIDCharType")
+    @Column(length = 36, columnDefinition = "varchar(36)", nullable = false)
+    private UUID customerId;
+
+    /**
+     * Status the order left, null for a newly placed order or a quantity only change.
+     */
+    private BeerOrderStatusEnum previousStatus;
+
+    /**
+     * Status the order entered, null for a quantity only change.
+     */
+    private BeerOrderStatusEnum orderStatus;
+
+    private int lineDelta;
+    private int quantityOrderedDelta;
+    private int quantityAllocatedDelta;
+    private Timestamp orderPlacedDate;
+}
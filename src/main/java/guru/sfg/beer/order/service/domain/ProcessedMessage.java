@@ -0,0 +1,54 @@
+package guru.sfg.beer.order.service.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.sql.Timestamp;
+
+/**
+ * JMS message that has been handled, so a redelivery after a restart can be recognised and dropped.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "ix_processed_message_date", columnList = "processedDate"))
+public class ProcessedMessage implements Persistable<String> {
+
+    public ProcessedMessage(String messageId, String queue) {
+        this.messageId = messageId;
+        this.queue = queue;
+    }
+
+    @Id
+    @Column(length = 100, updatable = false, nullable = false)
+    private String messageId;
+
+    @Column(length = 100, updatable = false)
+    private String queue;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private Timestamp processedDate;
+
+    @Override
+    public String getId() {
+        return messageId;
+    }
+
+    /**
+     * Always inserted, never merged: the id is assigned, so without this Spring Data would select first.
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package guru.sfg.beer.order.service.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.sql.Timestamp;
+
+/**
+ * Lease on a scheduled job, so that of all running instances only the holder runs it.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+public class SchedulerLease implements Persistable<String> {
+
+    public SchedulerLease(String name, String owner, Timestamp expiresAt) {
+        this.name = name;
+        this.owner = owner;
+        this.expiresAt = expiresAt;
+    }
+
+    @Id
+    @Column(length = 100, updatable = false, nullable = false)
+    private String name;
+
+    @Column(length = 100, nullable = false)
+    private String owner;
+
+    @Column(nullable = false)
+    private Timestamp expiresAt;
+
+    @Override
+    public String getId() {
+        return name;
+    }
+
+    /**
+     * Only saved to create the lease, later changes go through the conditional update in the repository.
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
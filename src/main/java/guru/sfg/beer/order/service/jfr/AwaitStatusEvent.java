@@ -0,0 +1,48 @@
+package guru.sfg.beer.order.service.jfr;
+
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.UUID;
+
+/**
+ * Time spent polling the database for an order to reach a status.
+ */
+@Name(OrderRecordingEndpoint.EVENT_PREFIX + "AwaitStatus")
+@Label("Await Order Status")
+@Category({"Beer Order", "State Machine"})
+@StackTrace(false)
+public class AwaitStatusEvent extends jdk.jfr.Event {
+
+    @Label("Order Id")
+    String orderId;
+
+    @Label("Status")
+    String status;
+
+    @Label("Iterations")
+    int iterations;
+
+    @Label("Timed Out")
+    boolean timedOut;
+
+    public static AwaitStatusEvent start() {
+        AwaitStatusEvent jfrEvent = new AwaitStatusEvent();
+        jfrEvent.begin();
+        return jfrEvent;
+    }
+
+    public void finish(UUID orderId, BeerOrderStatusEnum status, int iterations, boolean timedOut) {
+        end();
+        if (shouldCommit()) {
+            this.orderId = orderId.toString();
+            this.status = status.name();
+            this.iterations = iterations;
+            this.timedOut = timedOut;
+            commit();
+        }
+    }
+}
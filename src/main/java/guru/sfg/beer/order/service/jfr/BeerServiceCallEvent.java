@@ -0,0 +1,37 @@
+package guru.sfg.beer.order.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A remote call to the beer service.
+ */
+@Name(OrderRecordingEndpoint.EVENT_PREFIX + "BeerServiceCall")
+@Label("Beer Service Call")
+@Category({"Beer Order", "Beer Service"})
+@StackTrace(false)
+public class BeerServiceCallEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Outcome")
+    String outcome;
+
+    public static BeerServiceCallEvent start() {
+        BeerServiceCallEvent jfrEvent = new BeerServiceCallEvent();
+        jfrEvent.begin();
+        return jfrEvent;
+    }
+
+    public void finish(String operation, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package guru.sfg.beer.order.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.UUID;
+
+/**
+ * An order saga result message handled by a listener.
+ */
+@Name(OrderRecordingEndpoint.EVENT_PREFIX + "JmsReceive")
+@Label("Order Message Received")
+@Category({"Beer Order", "JMS"})
+@StackTrace(false)
+public class JmsReceiveEvent extends jdk.jfr.Event {
+
+    @Label("Queue")
+    String queue;
+
+    @Label("Order Id")
+    String orderId;
+
+    public static JmsReceiveEvent start() {
+        JmsReceiveEvent jfrEvent = new JmsReceiveEvent();
+        jfrEvent.begin();
+        return jfrEvent;
+    }
+
+    public void finish(String queue, UUID orderId) {
+        end();
+        if (shouldCommit()) {
+            this.queue = queue;
+            this.orderId = orderId.toString();
+            commit();
+        }
+    }
+}
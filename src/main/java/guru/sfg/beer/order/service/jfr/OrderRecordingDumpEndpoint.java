@@ -0,0 +1,53 @@
+package guru.sfg.beer.order.service.jfr;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * GET /actuator/jfrdump downloads a snapshot of the recording started through {@link OrderRecordingEndpoint}
+ * while it keeps running. Web only, as the snapshot is streamed as a file; like the recording endpoint it is
+ * exposed with the {@code jfr} profile.
+ */
+@Component
+@RequiredArgsConstructor
+@WebEndpoint(id = "jfrdump")
+public class OrderRecordingDumpEndpoint {
+
+    private final OrderRecordingEndpoint orderRecordingEndpoint;
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> dump() throws IOException {
+        Path file = orderRecordingEndpoint.dump();
+
+        if (file == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return new WebEndpointResponse<>(new TemporaryFileResource(file));
+    }
+
+    /**
+     * Dump file that is removed once it has been streamed to the client.
+     */
+    private static class TemporaryFileResource extends FileSystemResource {
+
+        TemporaryFileResource(Path path) {
+            super(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(getFile().toPath(), StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+    }
+}
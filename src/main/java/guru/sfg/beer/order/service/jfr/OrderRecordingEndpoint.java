@@ -0,0 +1,117 @@
+package guru.sfg.beer.order.service.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts and stops a flight recording on a live node.
+ *
+ * The write operation starts a recording with the JDK "profile" settings plus the order events and the
+ * delete operation stops it; {@link OrderRecordingDumpEndpoint} downloads a snapshot while it keeps running.
+ * Starting a recording costs CPU and disk, so the endpoint is not exposed over the web by default. The
+ * {@code jfr} profile exposes it over the web and JMX.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "jfr")
+public class OrderRecordingEndpoint {
+    public static final String EVENT_PREFIX = "guru.sfg.beer.order.";
+    public static final String RECORDING_NAME = "beer-order-service";
+
+    private static final List<Class<? extends jdk.jfr.Event>> ORDER_EVENTS = List.of(OrderStateTransitionEvent.class,
+            JmsSendEvent.class, JmsReceiveEvent.class, BeerServiceCallEvent.class, AwaitStatusEvent.class);
+
+    private Recording recording;
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+
+        status.put("id", recording.getId());
+        status.put("name", recording.getName());
+        status.put("state", recording.getState());
+        status.put("startTime", recording.getStartTime());
+        status.put("maxAge", recording.getMaxAge());
+        status.put("maxSize", recording.getMaxSize());
+        return status;
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable Duration maxAge, @Nullable Long maxSize)
+            throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return status();
+        }
+        closeRecording();
+
+        Recording newRecording = new Recording(Configuration.getConfiguration("profile"));
+        newRecording.setName(RECORDING_NAME);
+        newRecording.setToDisk(true);
+        newRecording.setMaxAge(maxAge != null ? maxAge : Duration.ofMinutes(30));
+        if (maxSize != null) {
+            newRecording.setMaxSize(maxSize);
+        }
+        ORDER_EVENTS.forEach(newRecording::enable);
+        newRecording.start();
+
+        recording = newRecording;
+        log.info("Started flight recording " + recording.getId());
+
+        return status();
+    }
+
+    /**
+     * Writes a snapshot of the running recording to a new temporary file.
+     *
+     * @return the file, or null when no recording is running
+     */
+    synchronized Path dump() throws IOException {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            return null;
+        }
+
+        Path file = Files.createTempFile(RECORDING_NAME + "-", ".jfr");
+        recording.dump(file);
+        return file;
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() {
+        if (recording != null) {
+            log.info("Stopping flight recording " + recording.getId());
+        }
+        closeRecording();
+        return status();
+    }
+
+    @PreDestroy
+    synchronized void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package guru.sfg.beer.order.service.jfr;
+
+import guru.sfg.beer.order.service.domain.BeerOrderEventEnum;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.UUID;
+
+/**
+ * A state machine event applied to an order.
+ */
+@Name(OrderRecordingEndpoint.EVENT_PREFIX + "StateTransition")
+@Label("Order State Transition")
+@Category({"Beer Order", "State Machine"})
+@StackTrace(false)
+public class OrderStateTransitionEvent extends jdk.jfr.Event {
+
+    @Label("Order Id")
+    String orderId;
+
+    @Label("Event")
+    String event;
+
+    @Label("Source")
+    String source;
+
+    @Label("Target")
+    String target;
+
+    @Label("Accepted")
+    boolean accepted;
+
+    public static OrderStateTransitionEvent start() {
+        OrderStateTransitionEvent jfrEvent = new OrderStateTransitionEvent();
+        jfrEvent.begin();
+        return jfrEvent;
+    }
+
+    public void finish(UUID orderId, BeerOrderEventEnum event, BeerOrderStatusEnum source,
+                       BeerOrderStatusEnum target, boolean accepted) {
+        end();
+        if (shouldCommit()) {
+            this.orderId = orderId.toString();
+            this.event = event.name();
+            this.source = source.name();
+            this.target = target.name();
+            this.accepted = accepted;
+            commit();
+        }
+    }
+}
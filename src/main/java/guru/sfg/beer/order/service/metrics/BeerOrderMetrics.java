@@ -0,0 +1,191 @@
+package guru.sfg.beer.order.service.metrics;
+
+import guru.sfg.beer.order.service.domain.BeerOrderEventEnum;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.services.scheduling.OrderLane;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters for the beer order pipeline. All timers and summaries publish percentile histograms.
+ */
+@Component
+public class BeerOrderMetrics {
+
+    public static final String PREFIX = "beer.order";
+
+    private final MeterRegistry meterRegistry;
+    private final Timer stateMachineBuildTimer;
+
+    public BeerOrderMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.stateMachineBuildTimer = Timer.builder(PREFIX + ".state.machine.build")
+                .description("Time to build and reset a state machine for an order")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(meterRegistry);
+    }
+
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    public Timer stateMachineBuildTimer() {
+        return stateMachineBuildTimer;
+    }
+
+    public Timer transitionTimer(BeerOrderStatusEnum source, BeerOrderStatusEnum target, BeerOrderEventEnum event,
+                                 boolean accepted) {
+        return Timer.builder(PREFIX + ".transition")
+                .description("Time to apply a state machine event to an order")
+                .tag("source", source.name())
+                .tag("target", target.name())
+                .tag("event", event.name())
+                .tag("accepted", Boolean.toString(accepted))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public void recordAwait(BeerOrderStatusEnum status, int iterations, boolean timedOut) {
+        DistributionSummary.builder(PREFIX + ".await.iterations")
+                .description("Polling iterations spent waiting for an order status")
+                .tag("status", status.name())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(iterations);
+
+        if (timedOut) {
+            Counter.builder(PREFIX + ".await.timeouts")
+                    .description("Waits for an order status that gave up before the status was reached")
+                    .tag("status", status.name())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    public Timer jmsSendTimer(String queue) {
+        return Timer.builder(PREFIX + ".jms.send")
+                .description("Time to send a message to a queue")
+                .tag("queue", queue)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Timer listenerTimer(String queue) {
+        return Timer.builder(PREFIX + ".jms.listener")
+                .description("Time to process a message received from a queue")
+                .tag("queue", queue)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Timer beerServiceTimer(String operation, String outcome) {
+        return Timer.builder(PREFIX + ".beer.service")
+                .description("Beer service call latency")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Counter beerServiceErrors(String operation, String exception) {
+        return Counter.builder(PREFIX + ".beer.service.errors")
+                .description("Failed beer service calls")
+                .tag("operation", operation)
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+
+    public Timer stageTimer(String stage, String queue) {
+        return Timer.builder(PREFIX + ".lifecycle.stage")
+                .description("Time an order spends in a stage of a remote hop")
+                .tag("stage", stage)
+                .tag("queue", queue)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Timer placedToAllocatedTimer() {
+        return Timer.builder(PREFIX + ".lifecycle.allocated")
+                .description("Time from order placement until the order is allocated")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Counter allocationSloBreaches() {
+        return Counter.builder(PREFIX + ".lifecycle.allocation.slo.breaches")
+                .description("Orders that were not allocated within the allocation SLO")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Tagged by customer id for customers with a configured fair queue weight and {@code other} for the rest,
+     * so the series stay bounded by the configuration.
+     */
+    public Timer fairQueueDelayTimer(String customer) {
+        return Timer.builder(PREFIX + ".fair.queue.delay")
+                .description("Time a new order waited in the fair queue before being sent to validation")
+                .tag("customer", customer)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Counter placementKeyChecks(String outcome) {
+        return Counter.builder(PREFIX + ".placement.key.checks")
+                .description("Idempotency key checks on order placement, by how they were answered")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public Counter jmsDuplicates(String queue, String source) {
+        return Counter.builder(PREFIX + ".jms.duplicates")
+                .description("Redelivered result messages dropped as already handled, by where they were recognised")
+                .tag("queue", queue)
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    public Counter stuckOrderRedrives(BeerOrderStatusEnum status, String outcome) {
+        return Counter.builder(PREFIX + ".stuck.redrives")
+                .description("Stuck orders handled by the sweeper, by status and whether they were re-sent or failed")
+                .tag("status", status.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public Counter pickupExpirations(String outcome) {
+        return Counter.builder(PREFIX + ".pickup.expirations")
+                .description("Pickup deadlines that expired, by whether the order was cancelled or had moved on")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public Counter reallocations(String trigger) {
+        return Counter.builder(PREFIX + ".reallocations")
+                .description("Orders waiting on inventory sent to allocation again, by what triggered it")
+                .tag("trigger", trigger)
+                .register(meterRegistry);
+    }
+
+    public Timer laneTimer(OrderLane lane) {
+        return Timer.builder(PREFIX + ".lane")
+                .description("Time to run order work in a lane, including the wait for capacity")
+                .tag("lane", lane.name())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Timer laneWaitTimer(OrderLane lane) {
+        return Timer.builder(PREFIX + ".lane.wait")
+                .description("Time order work waited for capacity in a lane")
+                .tag("lane", lane.name())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
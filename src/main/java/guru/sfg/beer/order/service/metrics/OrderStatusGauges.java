@@ -0,0 +1,102 @@
+package guru.sfg.beer.order.service.metrics;
+
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.sm.BeerOrderStatusChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Number of orders in each status. Seeded from the database at startup and kept current between reads
+ * from committed {@link BeerOrderStatusChangedEvent}s, so reading a gauge never queries the database. Also
+ * keeps a running total of orders still in flight in the saga.
+ *
+ * An instance only sees its own transitions, so with several instances the counts drift. They are
+ * reconciled from the database on a schedule, which bounds the drift to what one interval can add.
+ */
+@Slf4j
+@Component
+public class OrderStatusGauges {
+
+    private final BeerOrderRepository beerOrderRepository;
+    private final Map<BeerOrderStatusEnum, AtomicLong> counts = new EnumMap<>(BeerOrderStatusEnum.class);
+    private final AtomicLong inFlight = new AtomicLong();
+
+    public OrderStatusGauges(BeerOrderRepository beerOrderRepository, MeterRegistry meterRegistry) {
+        this.beerOrderRepository = beerOrderRepository;
+
+        for (BeerOrderStatusEnum status : BeerOrderStatusEnum.values()) {
+            AtomicLong count = new AtomicLong();
+            counts.put(status, count);
+
+            Gauge.builder(BeerOrderMetrics.PREFIX + ".status.count", count, AtomicLong::get)
+                    .description("Orders currently in a status")
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    @PostConstruct
+    void seed() {
+        reconcile();
+        log.debug("Seeded order status gauges: " + counts);
+    }
+
+    /**
+     * Replaces the counts with those in the database. A transition committed while the query runs may be
+     * counted twice or not at all until the next pass.
+     */
+    @Scheduled(fixedDelayString = "${sfg.order.status-gauges.reconcile-interval-ms:10000}")
+    public void reconcile() {
+        Map<BeerOrderStatusEnum, Long> totals = new EnumMap<>(BeerOrderStatusEnum.class);
+        beerOrderRepository.countGroupByOrderStatus().forEach(statusCount -> {
+            if (statusCount.getOrderStatus() != null) {
+                totals.put(statusCount.getOrderStatus(), statusCount.getTotal());
+            }
+        });
+
+        long totalInFlight = 0;
+        for (BeerOrderStatusEnum status : BeerOrderStatusEnum.values()) {
+            long total = totals.getOrDefault(status, 0L);
+            counts.get(status).set(total);
+
+            if (status.isInFlight()) {
+                totalInFlight += total;
+            }
+        }
+        inFlight.set(totalInFlight);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(BeerOrderStatusChangedEvent event) {
+        if (event.getPreviousStatus() != null) {
+            counts.get(event.getPreviousStatus()).decrementAndGet();
+
+            if (event.getPreviousStatus().isInFlight()) {
+                inFlight.decrementAndGet();
+            }
+        }
+        counts.get(event.getStatus()).incrementAndGet();
+
+        if (event.getStatus().isInFlight()) {
+            inFlight.incrementAndGet();
+        }
+    }
+
+    public long count(BeerOrderStatusEnum status) {
+        return counts.get(status).get();
+    }
+
+    public long inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,81 @@
+package guru.sfg.beer.order.service.ratelimit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the customer's rate limit to order placement and reports it in X-RateLimit headers. Requests
+ * over the limit get 429 with Retry-After.
+ */
+@Component
+@RequiredArgsConstructor
+public class CustomerRateLimitInterceptor implements HandlerInterceptor {
+    public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String RESET_HEADER = "X-RateLimit-Reset";
+
+    private static final String CUSTOMER_ID_VARIABLE = "customerId";
+
+    private final CustomerRateLimiter customerRateLimiter;
+    private final RateLimitProperties rateLimitProperties;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (!rateLimitProperties.isEnabled() || !HttpMethod.POST.matches(request.getMethod())) {
+            return true;
+        }
+
+        UUID customerId = customerId(request);
+
+        if (customerId == null) {
+            return true;
+        }
+
+        RateLimitResult result = customerRateLimiter.tryConsume(customerId);
+
+        response.setHeader(LIMIT_HEADER, Integer.toString(result.getLimit()));
+        response.setHeader(REMAINING_HEADER, Integer.toString(result.getRemaining()));
+        response.setHeader(RESET_HEADER, Long.toString(toSeconds(result.getResetNanos())));
+
+        if (result.isAllowed()) {
+            return true;
+        }
+
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, toSeconds(result.getRetryAfterNanos()))));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Order rate limit exceeded");
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static UUID customerId(HttpServletRequest request) {
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+
+        if (variables == null || variables.get(CUSTOMER_ID_VARIABLE) == null) {
+            return null;
+        }
+
+        try {
+            return UUID.fromString(variables.get(CUSTOMER_ID_VARIABLE));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static long toSeconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,103 @@
+package guru.sfg.beer.order.service.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Per customer token buckets for order placement.
+ *
+ * Buckets are created on first use and held in a cache of at most {@code max-buckets}. A bucket left alone
+ * for as long as the slowest limit takes to refill is full, and a full bucket behaves exactly like a new
+ * one, so it expires then; eviction and expiry run inside the cache, never as a scan on the request path.
+ *
+ * Bulk placement draws on a separate, larger budget per customer, so one bulk request neither exhausts nor
+ * is cut short by the single placement limit.
+ */
+@Component
+public class CustomerRateLimiter {
+
+    private final RateLimitProperties rateLimitProperties;
+    private final Cache<UUID, TokenBucket> buckets;
+    private final Cache<UUID, TokenBucket> bulkBuckets;
+    private final Counter rejected;
+
+    public CustomerRateLimiter(RateLimitProperties rateLimitProperties, BeerOrderMetrics beerOrderMetrics) {
+        this.rateLimitProperties = rateLimitProperties;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(rateLimitProperties.getMaxBuckets())
+                .expireAfterAccess(longestRefill(rateLimitProperties))
+                .build();
+        this.bulkBuckets = Caffeine.newBuilder()
+                .maximumSize(rateLimitProperties.getMaxBuckets())
+                .expireAfterAccess(refill(rateLimitProperties.getBulk()))
+                .build();
+
+        this.rejected = Counter.builder(BeerOrderMetrics.PREFIX + ".rate.limit.rejected")
+                .description("Orders rejected by the per customer rate limit")
+                .register(beerOrderMetrics.getMeterRegistry());
+        Gauge.builder(BeerOrderMetrics.PREFIX + ".rate.limit.buckets", buckets, Cache::estimatedSize)
+                .description("Customer rate limit buckets held in memory")
+                .register(beerOrderMetrics.getMeterRegistry());
+        Gauge.builder(BeerOrderMetrics.PREFIX + ".rate.limit.bulk.buckets", bulkBuckets, Cache::estimatedSize)
+                .description("Customer bulk placement buckets held in memory")
+                .register(beerOrderMetrics.getMeterRegistry());
+    }
+
+    public RateLimitResult tryConsume(UUID customerId) {
+        long now = System.nanoTime();
+
+        RateLimitResult result = buckets.get(customerId,
+                id -> newBucket(rateLimitProperties.limitFor(id), now)).tryConsume(now);
+
+        if (!result.isAllowed()) {
+            rejected.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Takes one token per order from the customer's bulk placement budget, all or none.
+     */
+    public RateLimitResult tryConsumeBulk(UUID customerId, int orders) {
+        long now = System.nanoTime();
+
+        RateLimitResult result = bulkBuckets.get(customerId,
+                id -> newBucket(rateLimitProperties.getBulk(), now)).tryConsume(now, orders);
+
+        if (!result.isAllowed()) {
+            rejected.increment(orders);
+        }
+        return result;
+    }
+
+    private static TokenBucket newBucket(RateLimitProperties.Limit limit, long now) {
+        return new TokenBucket(limit.getPermitsPerSecond(), limit.getBurst(), now);
+    }
+
+    /**
+     * Time an empty bucket takes to fill up again under the slowest configured limit.
+     */
+    private static Duration longestRefill(RateLimitProperties rateLimitProperties) {
+        double seconds = refillSeconds(rateLimitProperties.getDefaults());
+
+        for (RateLimitProperties.Limit limit : rateLimitProperties.getCustomers().values()) {
+            seconds = Math.max(seconds, refillSeconds(limit));
+        }
+        return Duration.ofMillis((long) Math.ceil(seconds * 1000));
+    }
+
+    private static Duration refill(RateLimitProperties.Limit limit) {
+        return Duration.ofMillis((long) Math.ceil(refillSeconds(limit) * 1000));
+    }
+
+    private static double refillSeconds(RateLimitProperties.Limit limit) {
+        return limit.getBurst() / limit.getPermitsPerSecond();
+    }
+}
@@ -0,0 +1,52 @@
+package guru.sfg.beer.order.service.ratelimit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Order placement rate limits. Every customer gets the default limit unless listed under customers.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sfg.order.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Upper bound on the number of customer buckets kept in memory.
+     */
+    private int maxBuckets = 100_000;
+
+    private Limit defaults = new Limit();
+
+    private Map<UUID, Limit> customers = new HashMap<>();
+
+    /**
+     * Orders a customer may place through bulk placement, charged a chunk at a time. The burst must be at
+     * least the bulk chunk size.
+     */
+    private Limit bulk = new Limit(100, 5_000);
+
+    public Limit limitFor(UUID customerId) {
+        return customers.getOrDefault(customerId, defaults);
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        private double permitsPerSecond = 10;
+        private int burst = 20;
+    }
+}
@@ -0,0 +1,26 @@
+package guru.sfg.beer.order.service.ratelimit;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Outcome of taking a token from a customer's bucket.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class RateLimitResult {
+    private final boolean allowed;
+    private final int limit;
+    private final int remaining;
+    private final long retryAfterNanos;
+    private final long resetNanos;
+
+    static RateLimitResult allowed(int limit, int remaining, long resetNanos) {
+        return new RateLimitResult(true, limit, remaining, 0, resetNanos);
+    }
+
+    static RateLimitResult rejected(int limit, long retryAfterNanos, long resetNanos) {
+        return new RateLimitResult(false, limit, 0, retryAfterNanos, resetNanos);
+    }
+}
@@ -0,0 +1,51 @@
+package guru.sfg.beer.order.service.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket implemented as a generic cell rate algorithm: the only state is the theoretical arrival
+ * time of the next request, so refill and consume are a single compare and set.
+ */
+public class TokenBucket {
+
+    private final int burst;
+    private final long emissionIntervalNanos;
+    private final long burstWindowNanos;
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate limit needs a positive rate and burst");
+        }
+
+        this.burst = burst;
+        this.emissionIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstWindowNanos = emissionIntervalNanos * burst;
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    public RateLimitResult tryConsume(long nowNanos) {
+        return tryConsume(nowNanos, 1);
+    }
+
+    /**
+     * Takes all the permits or none. More permits than the burst are never granted.
+     */
+    public RateLimitResult tryConsume(long nowNanos, int permits) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, nowNanos) + emissionIntervalNanos * permits;
+            long backlog = next - nowNanos;
+
+            if (backlog > burstWindowNanos) {
+                return RateLimitResult.rejected(burst, backlog - burstWindowNanos, backlog - emissionIntervalNanos);
+            }
+
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                int remaining = (int) ((burstWindowNanos - backlog) / emissionIntervalNanos);
+                return RateLimitResult.allowed(burst, remaining, backlog);
+            }
+        }
+    }
+}
@@ -18,9 +18,39 @@
 package guru.sfg.beer.order.service.repositories;
 
 import guru.sfg.beer.order.service.domain.BeerOrderLine;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.repositories.projections.PendingLineRef;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.sql.Timestamp;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface BeerOrderLineRepository extends PagingAndSortingRepository<BeerOrderLine, UUID> {
+
+    /**
+     * Short lines of the orders in the status changed at or after {@code since}, read through a cursor.
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("select o.id as orderId, o.createdDate as createdDate, l.upc as upc, " +
+            "l.orderQuantity - coalesce(l.quantityAllocated, 0) as outstanding " +
+            "from BeerOrderLine l join l.beerOrder o " +
+            "where o.orderStatus = :status and o.lastModifiedDate >= :since " +
+            "and l.orderQuantity > coalesce(l.quantityAllocated, 0)")
+    Stream<PendingLineRef> streamPendingLines(@Param("status") BeerOrderStatusEnum status,
+                                              @Param("since") Timestamp since);
+
+    @Query("select o.id as orderId, o.createdDate as createdDate, l.upc as upc, " +
+            "l.orderQuantity - coalesce(l.quantityAllocated, 0) as outstanding " +
+            "from BeerOrderLine l join l.beerOrder o " +
+            "where o.id = :orderId and l.orderQuantity > coalesce(l.quantityAllocated, 0)")
+    List<PendingLineRef> findPendingLines(@Param("orderId") UUID orderId);
 }
@@ -20,12 +20,32 @@ package guru.sfg.beer.order.service.repositories;
 import guru.sfg.beer.order.service.domain.BeerOrder;
 import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
 import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.repositories.projections.BeerOrderSummaryView;
+import guru.sfg.beer.order.service.repositories.projections.CustomerOrderTotals;
+import guru.sfg.beer.order.service.repositories.projections.EntityVersion;
+import guru.sfg.beer.order.service.repositories.projections.OrderChangeView;
+import guru.sfg.beer.order.service.repositories.projections.OrderExportRow;
+import guru.sfg.beer.order.service.repositories.projections.OrderModifiedRef;
+import guru.sfg.beer.order.service.repositories.projections.OrderStatusCount;
+import guru.sfg.beer.order.service.repositories.projections.OrderStatusView;
+import guru.sfg.beer.order.service.repositories.projections.OrderVersion;
+import guru.sfg.beer.order.service.repositories.projections.PlacedOrderKey;
+import guru.sfg.beer.order.service.repositories.projections.PlacementKeyRef;
+import guru.sfg.beer.order.service.repositories.projections.StuckOrderRef;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 
 /**
@@ -33,10 +53,152 @@ import java.util.UUID;
  */
 public interface BeerOrderRepository  extends JpaRepository<BeerOrder, UUID> {
 
-    Page<BeerOrder> findAllByCustomer(Customer customer, Pageable pageable);
+    /**
+     * Orders of the customer oldest first, ties broken by id, so a page holds the same orders however often
+     * it is read. The version and summary pages below use the same order.
+     */
+    @Query(value = "select o from BeerOrder o where o.customer = :customer order by o.createdDate, o.id",
+            countQuery = "select count(o) from BeerOrder o where o.customer = :customer")
+    Page<BeerOrder> findAllByCustomer(@Param("customer") Customer customer, Pageable pageable);
 
     List<BeerOrder> findAllByOrderStatus(BeerOrderStatusEnum orderStatusEnum);
 
+    @Query("select o.orderStatus as orderStatus, count(o) as total from BeerOrder o group by o.orderStatus")
+    List<OrderStatusCount> countGroupByOrderStatus();
+
+    @Query("select o.orderStatus as orderStatus, count(o) as total from BeerOrder o " +
+            "where o.customer.id = :customerId group by o.orderStatus")
+    List<OrderStatusCount> countGroupByOrderStatusForCustomer(@Param("customerId") UUID customerId);
+
+    @Query("select count(l) as totalLines, coalesce(sum(l.orderQuantity), 0) as totalQuantityOrdered, " +
+            "coalesce(sum(l.quantityAllocated), 0) as totalQuantityAllocated, max(o.createdDate) as lastOrderDate " +
+            "from BeerOrder o left join o.beerOrderLines l where o.customer.id = :customerId")
+    CustomerOrderTotals findTotalsByCustomerId(@Param("customerId") UUID customerId);
+
+    /**
+     * Content version of an order: its own version plus the versions of its lines, so it also moves when
+     * only allocated quantities change.
+     */
+    @Query("select o.id as id, o.version + coalesce(sum(l.version), 0) as version, c.id as customerId " +
+            "from BeerOrder o left join o.customer c left join o.beerOrderLines l " +
+            "where o.id = :id group by o.id, o.version, c.id")
+    Optional<OrderVersion> findVersionById(@Param("id") UUID id);
+
+    /**
+     * Same page of orders as {@link #findAllByCustomer(Customer, Pageable)}, reduced to ids and content versions.
+     */
+    @Query(value = "select o.id as id, o.version + coalesce(sum(l.version), 0) as version " +
+            "from BeerOrder o left join o.beerOrderLines l where o.customer.id = :customerId " +
+            "group by o.id, o.version, o.createdDate order by o.createdDate, o.id",
+            countQuery = "select count(o) from BeerOrder o where o.customer.id = :customerId")
+    Page<EntityVersion> findVersionsByCustomerId(@Param("customerId") UUID customerId, Pageable pageable);
+
+    /**
+     * Status and content version of those of the given orders that belong to the customer, in one query.
+     */
+    @Query("select o.id as id, o.orderStatus as orderStatus, o.version + coalesce(sum(l.version), 0) as version, " +
+            "o.lastModifiedDate as lastModifiedDate from BeerOrder o left join o.beerOrderLines l " +
+            "where o.customer.id = :customerId and o.id in :ids " +
+            "group by o.id, o.orderStatus, o.version, o.lastModifiedDate")
+    List<OrderStatusView> findStatusesByCustomerIdAndIdIn(@Param("customerId") UUID customerId,
+                                                          @Param("ids") Collection<UUID> ids);
+
+    /**
+     * Summary view of the same page of orders as {@link #findAllByCustomer(Customer, Pageable)}.
+     */
+    @Query(value = "select o.id as id, o.customer.id as customerId, o.customerRef as customerRef, " +
+            "o.orderStatus as orderStatus, o.createdDate as createdDate, o.lastModifiedDate as lastModifiedDate " +
+            "from BeerOrder o where o.customer.id = :customerId order by o.createdDate, o.id",
+            countQuery = "select count(o) from BeerOrder o where o.customer.id = :customerId")
+    Page<BeerOrderSummaryView> findSummariesByCustomerId(@Param("customerId") UUID customerId, Pageable pageable);
+
+    @Query("select o.id as id, o.customer.id as customerId, o.customerRef as customerRef, " +
+            "o.orderStatus as orderStatus, o.createdDate as createdDate, o.lastModifiedDate as lastModifiedDate " +
+            "from BeerOrder o where o.id = :id")
+    Optional<BeerOrderSummaryView> findSummaryById(@Param("id") UUID id);
+
+    /**
+     * Orders modified after the (lastModifiedDate, id) position and no later than {@code upTo}, in that
+     * order. Walks the ix_beer_order_modified index from the position, so the cost follows the number of changes.
+     */
+    @Query("select o.id as id, o.customer.id as customerId, o.orderStatus as orderStatus, o.version as version, " +
+            "o.lastModifiedDate as lastModifiedDate from BeerOrder o " +
+            "where (o.lastModifiedDate > :since or (o.lastModifiedDate = :since and o.id > :afterId)) " +
+            "and o.lastModifiedDate <= :upTo order by o.lastModifiedDate, o.id")
+    List<OrderChangeView> findChangesAfter(@Param("since") Timestamp since, @Param("afterId") UUID afterId,
+                                           @Param("upTo") Timestamp upTo, Pageable pageable);
+
+    /**
+     * Forward only cursor over the lines of the orders created in [from, to), lines of one order adjacent.
+     * Rows are scalar projections, so nothing piles up in the persistence context however many are read.
+     * Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select o.id as orderId, c.id as customerId, o.customerRef as customerRef, o.orderStatus as orderStatus, " +
+            "o.createdDate as createdDate, o.lastModifiedDate as lastModifiedDate, l.id as lineId, l.upc as upc, " +
+            "l.orderQuantity as orderQuantity, l.quantityAllocated as quantityAllocated " +
+            "from BeerOrder o left join o.customer c left join o.beerOrderLines l " +
+            "where o.createdDate >= :from and o.createdDate < :to order by o.createdDate, o.id")
+    Stream<OrderExportRow> streamExportRows(@Param("from") Timestamp from, @Param("to") Timestamp to);
+
+    @Query("select o.id from BeerOrder o where o.customer.id = :customerId and o.placementKey = :placementKey")
+    Optional<UUID> findIdByCustomerIdAndPlacementKey(@Param("customerId") UUID customerId,
+                                                     @Param("placementKey") String placementKey);
+
+    @Query("select o.id as id, o.placementKey as placementKey from BeerOrder o " +
+            "where o.customer.id = :customerId and o.placementKey in :placementKeys")
+    List<PlacedOrderKey> findByCustomerIdAndPlacementKeyIn(@Param("customerId") UUID customerId,
+                                                           @Param("placementKeys") Collection<String> placementKeys);
+
+    /**
+     * Every idempotency key in use, for warming the in-memory key filter. Must be consumed inside a
+     * transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("select o.customer.id as customerId, o.placementKey as placementKey from BeerOrder o " +
+            "where o.placementKey is not null")
+    Stream<PlacementKeyRef> streamPlacementKeys();
+
+    /**
+     * Orders in the status that have not changed since {@code stuckBefore}, in (lastModifiedDate, id) order
+     * after the given position. Walks the ix_beer_order_status_modified index.
+     */
+    @Query("select o.id as id, o.lastModifiedDate as lastModifiedDate from BeerOrder o " +
+            "where o.orderStatus = :status and o.lastModifiedDate < :stuckBefore " +
+            "and (o.lastModifiedDate > :after or (o.lastModifiedDate = :after and o.id > :afterId)) " +
+            "order by o.lastModifiedDate, o.id")
+    List<StuckOrderRef> findStuckOrders(@Param("status") BeerOrderStatusEnum status,
+                                        @Param("stuckBefore") Timestamp stuckBefore,
+                                        @Param("after") Timestamp after, @Param("afterId") UUID afterId,
+                                        Pageable pageable);
+
+    /**
+     * Orders with their lines and customer, in one query.
+     */
+    @Query("select distinct o from BeerOrder o left join fetch o.beerOrderLines left join fetch o.customer " +
+            "where o.id in :ids")
+    List<BeerOrder> findAllWithLinesByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Orders in the status changed at or after {@code since}, read through a cursor over the
+     * ix_beer_order_status_modified index.
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("select o.id as id, o.lastModifiedDate as lastModifiedDate from BeerOrder o " +
+            "where o.orderStatus = :status and o.lastModifiedDate >= :since")
+    Stream<OrderModifiedRef> streamByOrderStatusModifiedSince(@Param("status") BeerOrderStatusEnum status,
+                                                              @Param("since") Timestamp since);
+
    // @Lock(LockModeType.PESSIMISTIC_WRITE)
    // BeerOrder findOneById(UUID id);
 }
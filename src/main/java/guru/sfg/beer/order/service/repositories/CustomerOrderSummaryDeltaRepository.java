@@ -0,0 +1,23 @@
+package guru.sfg.beer.order.service.repositories;
+
+import guru.sfg.beer.order.service.domain.CustomerOrderSummaryDelta;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.UUID;
+
+public interface CustomerOrderSummaryDeltaRepository extends JpaRepository<CustomerOrderSummaryDelta, UUID> {
+
+    List<CustomerOrderSummaryDelta> findAllByCustomerId(UUID customerId);
+
+    /**
+     * Oldest deltas, locked so that compaction running on two nodes never folds the same delta twice.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from CustomerOrderSummaryDelta d order by d.createdDate")
+    List<CustomerOrderSummaryDelta> findOldestForCompaction(Pageable pageable);
+}
@@ -0,0 +1,21 @@
+package guru.sfg.beer.order.service.repositories;
+
+import guru.sfg.beer.order.service.domain.CustomerOrderSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface CustomerOrderSummaryRepository extends JpaRepository<CustomerOrderSummary, UUID> {
+
+    /**
+     * Customers, after the given id, whose summary was never rebuilt from their orders.
+     */
+    @Query("select c.id from Customer c where c.id > :afterId and not exists (" +
+            "select s.customerId from CustomerOrderSummary s " +
+            "where s.customerId = c.id and s.backfilledDate is not null) order by c.id")
+    List<UUID> findCustomersToBackfill(@Param("afterId") UUID afterId, Pageable pageable);
+}
@@ -17,7 +17,11 @@
 package guru.sfg.beer.order.service.repositories;
 
 import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.repositories.projections.EntityVersion;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.UUID;
@@ -27,4 +31,19 @@ import java.util.UUID;
  */
 public interface CustomerRepository extends JpaRepository<Customer, UUID> {
     List<Customer> findAllByCustomerNameLike(String customerName);
+
+    /**
+     * Customers ordered by id, so a page holds the same customers however often it is read. The version page
+     * below uses the same order.
+     */
+    @Query(value = "select c from Customer c order by c.id",
+            countQuery = "select count(c) from Customer c")
+    Page<Customer> findAllOrderById(Pageable pageable);
+
+    /**
+     * Same page of customers as {@link #findAllOrderById(Pageable)}, reduced to ids and versions.
+     */
+    @Query(value = "select c.id as id, c.version as version from Customer c order by c.id",
+            countQuery = "select count(c) from Customer c")
+    Page<EntityVersion> findAllVersions(Pageable pageable);
 }
@@ -0,0 +1,16 @@
+package guru.sfg.beer.order.service.repositories;
+
+import guru.sfg.beer.order.service.domain.ProcessedMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.sql.Timestamp;
+
+public interface ProcessedMessageRepository extends JpaRepository<ProcessedMessage, String> {
+
+    @Modifying
+    @Query("delete from ProcessedMessage m where m.processedDate < :before")
+    int deleteProcessedBefore(@Param("before") Timestamp before);
+}
@@ -0,0 +1,26 @@
+package guru.sfg.beer.order.service.repositories;
+
+import guru.sfg.beer.order.service.domain.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    /**
+     * Takes the lease when the owner already holds it or it has expired. A single conditional update, so two
+     * instances racing for an expired lease cannot both win.
+     *
+     * @return 1 when the owner holds the lease until {@code expiresAt}, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("update SchedulerLease l set l.owner = :owner, l.expiresAt = :expiresAt " +
+            "where l.name = :name and (l.owner = :owner or l.expiresAt < :now)")
+    int acquire(@Param("name") String name, @Param("owner") String owner, @Param("now") Timestamp now,
+                @Param("expiresAt") Timestamp expiresAt);
+}
@@ -0,0 +1,24 @@
+package guru.sfg.beer.order.service.repositories.projections;
+
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Order header columns only, for the summary view of orders. Never joins the order lines.
+ */
+public interface BeerOrderSummaryView {
+
+    UUID getId();
+
+    UUID getCustomerId();
+
+    String getCustomerRef();
+
+    BeerOrderStatusEnum getOrderStatus();
+
+    Timestamp getCreatedDate();
+
+    Timestamp getLastModifiedDate();
+}
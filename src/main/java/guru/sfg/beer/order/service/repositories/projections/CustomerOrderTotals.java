@@ -0,0 +1,17 @@
+package guru.sfg.beer.order.service.repositories.projections;
+
+import java.sql.Timestamp;
+
+/**
+ * Line and quantity totals over all orders of a customer.
+ */
+public interface CustomerOrderTotals {
+
+    Long getTotalLines();
+
+    Long getTotalQuantityOrdered();
+
+    Long getTotalQuantityAllocated();
+
+    Timestamp getLastOrderDate();
+}
@@ -0,0 +1,13 @@
+package guru.sfg.beer.order.service.repositories.projections;
+
+import java.util.UUID;
+
+/**
+ * Id and optimistic lock version of an entity, enough to tell whether it changed.
+ */
+public interface EntityVersion {
+
+    UUID getId();
+
+    Long getVersion();
+}
@@ -0,0 +1,18 @@
+package guru.sfg.beer.order.service.repositories.projections;
+
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * One entry of the order change feed.
+ */
+public interface OrderChangeView extends EntityVersion {
+
+    UUID getCustomerId();
+
+    BeerOrderStatusEnum getOrderStatus();
+
+    Timestamp getLastModifiedDate();
+}
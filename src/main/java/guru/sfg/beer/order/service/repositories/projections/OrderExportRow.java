@@ -0,0 +1,33 @@
+package guru.sfg.beer.order.service.repositories.projections;
+
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * One order line joined with its order header, as read by the order export. Orders without lines yield a
+ * single row with null line columns.
+ */
+public interface OrderExportRow {
+
+    UUID getOrderId();
+
+    UUID getCustomerId();
+
+    String getCustomerRef();
+
+    BeerOrderStatusEnum getOrderStatus();
+
+    Timestamp getCreatedDate();
+
+    Timestamp getLastModifiedDate();
+
+    UUID getLineId();
+
+    String getUpc();
+
+    Integer getOrderQuantity();
+
+    Integer getQuantityAllocated();
+}
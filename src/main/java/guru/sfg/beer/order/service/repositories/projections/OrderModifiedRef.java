@@ -0,0 +1,14 @@
+package guru.sfg.beer.order.service.repositories.projections;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Order id with the time the order last changed.
+ */
+public interface OrderModifiedRef {
+
+    UUID getId();
+
+    Timestamp getLastModifiedDate();
+}
@@ -0,0 +1,13 @@
+package guru.sfg.beer.order.service.repositories.projections;
+
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+
+/**
+ * Number of orders in a given status.
+ */
+public interface OrderStatusCount {
+
+    BeerOrderStatusEnum getOrderStatus();
+
+    Long getTotal();
+}
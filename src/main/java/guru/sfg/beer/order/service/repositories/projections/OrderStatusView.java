@@ -0,0 +1,15 @@
+package guru.sfg.beer.order.service.repositories.projections;
+
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+
+import java.sql.Timestamp;
+
+/**
+ * Status of an order with its content version, without loading the order or its lines.
+ */
+public interface OrderStatusView extends EntityVersion {
+
+    BeerOrderStatusEnum getOrderStatus();
+
+    Timestamp getLastModifiedDate();
+}
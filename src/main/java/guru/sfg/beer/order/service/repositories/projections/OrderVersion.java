@@ -0,0 +1,11 @@
+package guru.sfg.beer.order.service.repositories.projections;
+
+import java.util.UUID;
+
+/**
+ * Version of an order together with the customer it belongs to.
+ */
+public interface OrderVersion extends EntityVersion {
+
+    UUID getCustomerId();
+}
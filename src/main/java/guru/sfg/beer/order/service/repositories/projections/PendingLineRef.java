@@ -0,0 +1,21 @@
+package guru.sfg.beer.order.service.repositories.projections;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Order line still short of its ordered quantity.
+ */
+public interface PendingLineRef {
+
+    UUID getOrderId();
+
+    Timestamp getCreatedDate();
+
+    String getUpc();
+
+    /**
+     * Ordered quantity not allocated yet.
+     */
+    Integer getOutstanding();
+}
@@ -0,0 +1,13 @@
+package guru.sfg.beer.order.service.repositories.projections;
+
+import java.util.UUID;
+
+/**
+ * Id of an order together with the idempotency key it was placed with.
+ */
+public interface PlacedOrderKey {
+
+    UUID getId();
+
+    String getPlacementKey();
+}
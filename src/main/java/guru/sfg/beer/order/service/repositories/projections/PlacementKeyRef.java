@@ -0,0 +1,13 @@
+package guru.sfg.beer.order.service.repositories.projections;
+
+import java.util.UUID;
+
+/**
+ * Idempotency key of an order and the customer it is unique for.
+ */
+public interface PlacementKeyRef {
+
+    UUID getCustomerId();
+
+    String getPlacementKey();
+}
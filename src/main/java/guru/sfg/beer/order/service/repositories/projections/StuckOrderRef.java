@@ -0,0 +1,14 @@
+package guru.sfg.beer.order.service.repositories.projections;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Order found by the stuck order sweeper, with the key to resume the scan after it.
+ */
+public interface StuckOrderRef {
+
+    UUID getId();
+
+    Timestamp getLastModifiedDate();
+}
@@ -0,0 +1,19 @@
+package guru.sfg.beer.order.service.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.UUID;
+
+/**
+ * Published after the allocated quantities of an order's lines were updated from an allocation result.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class BeerOrderAllocationUpdatedEvent {
+    private final UUID orderId;
+    private final UUID customerId;
+    private final int quantityAllocatedDelta;
+}
@@ -3,6 +3,7 @@ package guru.sfg.beer.order.service.services;
 import guru.sfg.beer.order.service.domain.BeerOrder;
 import guru.sfg.brewery.model.BeerOrderDto;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -12,6 +13,13 @@ public interface BeerOrderManager {
 
     BeerOrder newBeerOrder(BeerOrder beerOrder);
 
+    /**
+     * Saves all orders as NEW in one transaction and one flush, so their inserts go out in JDBC batches.
+     */
+    List<BeerOrder> newBeerOrders(List<BeerOrder> beerOrders);
+
+    void validateOrder(UUID beerOrderId);
+
     void processValidationResult(UUID beerOrderId, Boolean isValid);
 
     void beerOrderAllocationPassed(BeerOrderDto beerOrder);
@@ -23,4 +31,22 @@ public interface BeerOrderManager {
     void beerOrderPickedUp(UUID id);
 
     void cancelOrder(UUID id);
+
+    /**
+     * Gives up on an order stuck waiting for a validation or allocation result, moving it to the matching
+     * exception status. Joins the caller's transaction, in which the order must be managed.
+     */
+    void failStuckOrder(BeerOrder beerOrder);
+
+    /**
+     * Cancels an allocated order that was not picked up in time, which releases its inventory. Joins the
+     * caller's transaction, in which the order must be managed.
+     */
+    void cancelExpiredOrder(BeerOrder beerOrder);
+
+    /**
+     * Requests allocation again for an order waiting on inventory. Joins the caller's transaction, in which
+     * the order must be managed.
+     */
+    void reallocateOrder(BeerOrder beerOrder);
 }
@@ -2,12 +2,23 @@ package guru.sfg.beer.order.service.services;
 
 import guru.sfg.beer.order.service.domain.BeerOrder;
 import guru.sfg.beer.order.service.domain.BeerOrderEventEnum;
+import guru.sfg.beer.order.service.domain.BeerOrderLine;
 import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.jfr.AwaitStatusEvent;
+import guru.sfg.beer.order.service.jfr.OrderStateTransitionEvent;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
 import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.services.scheduling.OrderLane;
+import guru.sfg.beer.order.service.services.scheduling.OrderWorkScheduler;
 import guru.sfg.beer.order.service.sm.BeerOrderStateChangeInterceptor;
+import guru.sfg.beer.order.service.sm.BeerOrderStatusChangedEvent;
+import guru.sfg.beer.order.service.tracing.OrderTraceContext;
 import guru.sfg.brewery.model.BeerOrderDto;
+import guru.sfg.brewery.model.BeerOrderLineDto;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.statemachine.StateMachine;
@@ -15,7 +26,12 @@ import org.springframework.statemachine.config.StateMachineFactory;
 import org.springframework.statemachine.support.DefaultStateMachineContext;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -30,10 +46,19 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class BeerOrderManagerImpl implements BeerOrderManager {
 
     public static final String ORDER_ID_HEADER = "ORDER_ID_HEADER";
+    /**
+     * The order the event is sent for, so actions and the state change interceptor work on it without reading it
+     * again.
+     */
+    public static final String BEER_ORDER_HEADER = "BEER_ORDER_HEADER";
 
     private final StateMachineFactory<BeerOrderStatusEnum, BeerOrderEventEnum> stateMachineFactory;
     private final BeerOrderRepository beerOrderRepository;
     private final BeerOrderStateChangeInterceptor beerOrderStateChangeInterceptor;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final BeerOrderMetrics beerOrderMetrics;
+    private final OrderWorkScheduler orderWorkScheduler;
+    private final TransactionTemplate transactionTemplate;
 
     @Transactional
     @Override
@@ -42,10 +67,47 @@ public class BeerOrderManagerImpl implements BeerOrderManager {
         beerOrder.setOrderStatus(BeerOrderStatusEnum.NEW);
 
         BeerOrder savedBeerOrder = beerOrderRepository.saveAndFlush(beerOrder);
-        sendBeerOrderEvent(savedBeerOrder, BeerOrderEventEnum.VALIDATE_ORDER);
+
+        // validation is requested by the fair queue once the NEW order is committed
+        applicationEventPublisher.publishEvent(BeerOrderStatusChangedEvent.of(savedBeerOrder, null));
         return savedBeerOrder;
     }
 
+    @Transactional
+    @Override
+    public List<BeerOrder> newBeerOrders(List<BeerOrder> beerOrders) {
+        beerOrders.forEach(beerOrder -> {
+            beerOrder.setId(null);
+            beerOrder.setOrderStatus(BeerOrderStatusEnum.NEW);
+        });
+
+        // ids are generated on persist, so nothing is written until the single flush
+        List<BeerOrder> savedBeerOrders = beerOrderRepository.saveAll(beerOrders);
+        beerOrderRepository.flush();
+
+        savedBeerOrders.forEach(savedBeerOrder ->
+                applicationEventPublisher.publishEvent(BeerOrderStatusChangedEvent.of(savedBeerOrder, null)));
+        return savedBeerOrders;
+    }
+
+    @Transactional
+    @Override
+    public void validateOrder(UUID beerOrderId) {
+        beerOrderRepository.findById(beerOrderId).ifPresentOrElse(beerOrder -> {
+            if (beerOrder.getOrderStatus() != BeerOrderStatusEnum.NEW) {
+                log.debug("Order already sent to validation. Id: " + beerOrderId);
+                return;
+            }
+
+            long placedAt = beerOrder.getCreatedDate() != null
+                    ? beerOrder.getCreatedDate().getTime() : System.currentTimeMillis();
+
+            try (OrderTraceContext.Scope scope = OrderTraceContext.newTrace(beerOrderId, placedAt).activate()) {
+                sendBeerOrderEvent(beerOrder, BeerOrderEventEnum.VALIDATE_ORDER);
+            }
+        }, () -> log.error("Order Not Found. Id: " + beerOrderId));
+    }
+
     @Transactional
     @Override
     public void processValidationResult(UUID beerOrderId, Boolean isValid) {
@@ -70,45 +132,71 @@ public class BeerOrderManagerImpl implements BeerOrderManager {
         }, () -> log.error("Order Not Found. Id: " + beerOrderId));
     }
 
+    /**
+     * Applies the transition and the allocated quantities to the order as one unit of work: the order and its
+     * lines are read once, and written in the single flush on commit.
+     */
+    @Transactional
     @Override
     public void beerOrderAllocationPassed(BeerOrderDto beerOrderDto) {
-        Optional<BeerOrder> beerOrderOptional = beerOrderRepository.findById(beerOrderDto.getId());
-
-        beerOrderOptional.ifPresentOrElse(beerOrder -> {
-            sendBeerOrderEvent(beerOrder, BeerOrderEventEnum.ALLOCATION_SUCCESS);
-            awaitForStatus(beerOrder.getId(), BeerOrderStatusEnum.ALLOCATED);
-            updateAllocatedQty(beerOrderDto);
-        }, () -> log.error("Order Id Not Found: " + beerOrderDto.getId() ));
+        applyAllocationResult(beerOrderDto, BeerOrderEventEnum.ALLOCATION_SUCCESS);
     }
 
+    @Transactional
     @Override
     public void beerOrderAllocationPendingInventory(BeerOrderDto beerOrderDto) {
-        Optional<BeerOrder> beerOrderOptional = beerOrderRepository.findById(beerOrderDto.getId());
+        applyAllocationResult(beerOrderDto, BeerOrderEventEnum.ALLOCATION_NO_INVENTORY);
+    }
 
-        beerOrderOptional.ifPresentOrElse(beerOrder -> {
-            sendBeerOrderEvent(beerOrder, BeerOrderEventEnum.ALLOCATION_NO_INVENTORY);
-            awaitForStatus(beerOrder.getId(), BeerOrderStatusEnum.PENDING_INVENTORY);
-            updateAllocatedQty(beerOrderDto);
+    private void applyAllocationResult(BeerOrderDto beerOrderDto, BeerOrderEventEnum eventEnum) {
+        // lines are fetched with the order, and the interceptor updates this same managed instance, so there is
+        // no status to wait for and nothing to read again
+        beerOrderRepository.findById(beerOrderDto.getId()).ifPresentOrElse(beerOrder -> {
+            sendBeerOrderEvent(beerOrder, eventEnum);
+            updateAllocatedQty(beerOrder, beerOrderDto);
         }, () -> log.error("Order Id Not Found: " + beerOrderDto.getId() ));
-
     }
 
-    private void updateAllocatedQty(BeerOrderDto beerOrderDto) {
-        Optional<BeerOrder> allocatedOrderOptional = beerOrderRepository.findById(beerOrderDto.getId());
+    private void updateAllocatedQty(BeerOrder allocatedOrder, BeerOrderDto beerOrderDto) {
+        Map<UUID, BeerOrderLineDto> lineDtosById = new HashMap<>();
+        if (beerOrderDto.getBeerOrderLines() != null) {
+            beerOrderDto.getBeerOrderLines().forEach(lineDto -> lineDtosById.put(lineDto.getId(), lineDto));
+        }
 
-        allocatedOrderOptional.ifPresentOrElse(allocatedOrder -> {
-            allocatedOrder.getBeerOrderLines().forEach(beerOrderLine -> {
-                beerOrderDto.getBeerOrderLines().forEach(beerOrderLineDto -> {
-                    if(beerOrderLine.getId() .equals(beerOrderLineDto.getId())){
-                        beerOrderLine.setQuantityAllocated(beerOrderLineDto.getQuantityAllocated());
-                    }
-                });
-            });
+        int quantityAllocatedDelta = 0;
+        boolean linesChanged = false;
+
+        for (BeerOrderLine beerOrderLine : allocatedOrder.getBeerOrderLines()) {
+            BeerOrderLineDto beerOrderLineDto = lineDtosById.get(beerOrderLine.getId());
+            if (beerOrderLineDto == null) {
+                continue;
+            }
 
-            beerOrderRepository.saveAndFlush(allocatedOrder);
-        }, () -> log.error("Order Not Found. Id: " + beerOrderDto.getId()));
+            int lineDelta = quantityOf(beerOrderLineDto.getQuantityAllocated())
+                    - quantityOf(beerOrderLine.getQuantityAllocated());
+            quantityAllocatedDelta += lineDelta;
+            if (lineDelta != 0) {
+                linesChanged = true;
+                beerOrderLine.setQuantityAllocated(beerOrderLineDto.getQuantityAllocated());
+            }
+        }
+
+        if (linesChanged) {
+            // touch the order, so the change feed (keyed on the order's lastModifiedDate) sees line changes
+            allocatedOrder.setLastModifiedDate(new Timestamp(System.currentTimeMillis()));
+        }
+
+        // the order summary delta is written in the same transaction as the quantities
+        applicationEventPublisher.publishEvent(new BeerOrderAllocationUpdatedEvent(allocatedOrder.getId(),
+                allocatedOrder.getCustomer() != null ? allocatedOrder.getCustomer().getId() : null,
+                quantityAllocatedDelta));
+    }
+
+    private static int quantityOf(Integer quantity) {
+        return quantity != null ? quantity : 0;
     }
 
+    @Transactional
     @Override
     public void beerOrderAllocationFailed(BeerOrderDto beerOrderDto) {
         Optional<BeerOrder> beerOrderOptional = beerOrderRepository.findById(beerOrderDto.getId());
@@ -121,39 +209,74 @@ public class BeerOrderManagerImpl implements BeerOrderManager {
 
     @Override
     public void beerOrderPickedUp(UUID id) {
-        Optional<BeerOrder> beerOrderOptional = beerOrderRepository.findById(id);
-
-        beerOrderOptional.ifPresentOrElse(beerOrder -> {
-            //do process
-            sendBeerOrderEvent(beerOrder, BeerOrderEventEnum.BEERORDER_PICKED_UP);
-        }, () -> log.error("Order Not Found. Id: " + id));
+        // the transaction starts once the lane has capacity, so waiting work holds no connection
+        orderWorkScheduler.run(OrderLane.EXPRESS, () -> transactionTemplate.executeWithoutResult(status -> {
+            Optional<BeerOrder> beerOrderOptional = beerOrderRepository.findById(id);
+
+            beerOrderOptional.ifPresentOrElse(beerOrder -> {
+                //do process
+                sendBeerOrderEvent(beerOrder, BeerOrderEventEnum.BEERORDER_PICKED_UP);
+            }, () -> log.error("Order Not Found. Id: " + id));
+        }));
     }
 
     @Override
     public void cancelOrder(UUID id) {
-        beerOrderRepository.findById(id).ifPresentOrElse(beerOrder -> {
-            sendBeerOrderEvent(beerOrder, BeerOrderEventEnum.CANCEL_ORDER);
-        }, () -> log.error("Order Not Found. Id: " + id));
+        orderWorkScheduler.run(OrderLane.EXPRESS, () -> transactionTemplate.executeWithoutResult(status ->
+                beerOrderRepository.findById(id).ifPresentOrElse(beerOrder -> {
+                    sendBeerOrderEvent(beerOrder, BeerOrderEventEnum.CANCEL_ORDER);
+                }, () -> log.error("Order Not Found. Id: " + id))));
+    }
+
+    @Transactional
+    @Override
+    public void failStuckOrder(BeerOrder beerOrder) {
+        sendBeerOrderEvent(beerOrder, beerOrder.getOrderStatus() == BeerOrderStatusEnum.VALIDATION_PENDING
+                ? BeerOrderEventEnum.VALIDATION_FAILED : BeerOrderEventEnum.ALLOCATION_FAILED);
+    }
+
+    @Transactional
+    @Override
+    public void cancelExpiredOrder(BeerOrder beerOrder) {
+        sendBeerOrderEvent(beerOrder, BeerOrderEventEnum.CANCEL_ORDER);
+    }
+
+    @Transactional
+    @Override
+    public void reallocateOrder(BeerOrder beerOrder) {
+        sendBeerOrderEvent(beerOrder, BeerOrderEventEnum.ALLOCATE_ORDER);
     }
 
     private void sendBeerOrderEvent(BeerOrder beerOrder, BeerOrderEventEnum eventEnum){
+        BeerOrderStatusEnum sourceStatus = beerOrder.getOrderStatus();
+        OrderStateTransitionEvent transitionEvent = OrderStateTransitionEvent.start();
+        Timer.Sample sample = beerOrderMetrics.startTimer();
+
         StateMachine<BeerOrderStatusEnum, BeerOrderEventEnum> sm = build(beerOrder);
 
         Message msg = MessageBuilder.withPayload(eventEnum)
                 .setHeader(ORDER_ID_HEADER, beerOrder.getId().toString())
+                .setHeader(BEER_ORDER_HEADER, beerOrder)
                 .build();
 
-        sm.sendEvent(msg);
+        boolean accepted = sm.sendEvent(msg);
+
+        BeerOrderStatusEnum targetStatus = sm.getState().getId();
+        sample.stop(beerOrderMetrics.transitionTimer(sourceStatus, targetStatus, eventEnum, accepted));
+        transitionEvent.finish(beerOrder.getId(), eventEnum, sourceStatus, targetStatus, accepted);
     }
 
     private void awaitForStatus(UUID beerOrderId, BeerOrderStatusEnum statusEnum) {
-
+        AwaitStatusEvent awaitEvent = AwaitStatusEvent.start();
         AtomicBoolean found = new AtomicBoolean(false);
         AtomicInteger loopCount = new AtomicInteger(0);
 
+        boolean timedOut = false;
+
         while (!found.get()) {
             if (loopCount.incrementAndGet() > 10) {
                 found.set(true);
+                timedOut = true;
                 log.debug("Loop Retries exceeded");
             }
 
@@ -177,9 +300,14 @@ public class BeerOrderManagerImpl implements BeerOrderManager {
                 }
             }
         }
+
+        beerOrderMetrics.recordAwait(statusEnum, loopCount.get(), timedOut);
+        awaitEvent.finish(beerOrderId, statusEnum, loopCount.get(), timedOut);
     }
 
     private StateMachine<BeerOrderStatusEnum, BeerOrderEventEnum> build(BeerOrder beerOrder){
+        Timer.Sample sample = beerOrderMetrics.startTimer();
+
         StateMachine<BeerOrderStatusEnum, BeerOrderEventEnum> sm = stateMachineFactory.getStateMachine(beerOrder.getId());
 
         sm.stop();
@@ -192,6 +320,8 @@ public class BeerOrderManagerImpl implements BeerOrderManager {
 
         sm.start();
 
+        sample.stop(beerOrderMetrics.stateMachineBuildTimer());
+
         return sm;
     }
 }
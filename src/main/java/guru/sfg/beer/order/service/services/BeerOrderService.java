@@ -18,18 +18,40 @@
 package guru.sfg.beer.order.service.services;
 
 
+import guru.sfg.beer.order.service.web.model.BeerOrderSummaryDto;
+import guru.sfg.beer.order.service.web.model.BeerOrderSummaryPagedList;
+import guru.sfg.beer.order.service.web.model.OrderStatusBatchResponse;
 import guru.sfg.brewery.model.BeerOrderDto;
 import guru.sfg.brewery.model.BeerOrderPagedList;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.UUID;
 
 public interface BeerOrderService {
     BeerOrderPagedList listOrders(UUID customerId, Pageable pageable);
 
+    BeerOrderSummaryPagedList listOrderSummaries(UUID customerId, Pageable pageable);
+
     BeerOrderDto placeOrder(UUID customerId, BeerOrderDto beerOrderDto);
 
+    /**
+     * Places the order unless the customer already placed one with the same idempotency key (or, without
+     * a key, the same customerRef), in which case that order is returned.
+     */
+    BeerOrderDto placeOrder(UUID customerId, BeerOrderDto beerOrderDto, String idempotencyKey);
+
     BeerOrderDto getOrderById(UUID customerId, UUID orderId);
 
+    BeerOrderDto getOrderById(UUID customerId, UUID orderId, boolean bypassCache);
+
+    BeerOrderSummaryDto getOrderSummaryById(UUID customerId, UUID orderId);
+
+    OrderStatusBatchResponse getOrderStatuses(UUID customerId, Collection<UUID> orderIds);
+
+    String getOrderETag(UUID customerId, UUID orderId);
+
+    String getOrdersETag(UUID customerId, Pageable pageable);
+
     void pickupOrder(UUID customerId, UUID orderId);
 }
@@ -22,20 +22,35 @@ import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
 import guru.sfg.beer.order.service.domain.Customer;
 import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
 import guru.sfg.beer.order.service.repositories.CustomerRepository;
+import guru.sfg.beer.order.service.repositories.projections.BeerOrderSummaryView;
+import guru.sfg.beer.order.service.repositories.projections.OrderStatusView;
+import guru.sfg.beer.order.service.repositories.projections.OrderVersion;
+import guru.sfg.beer.order.service.services.cache.BeerOrderDtoCache;
+import guru.sfg.beer.order.service.services.idempotency.PlacementKeyIndex;
 import guru.sfg.beer.order.service.web.mappers.BeerOrderMapper;
+import guru.sfg.beer.order.service.web.mappers.BeerOrderSummaryMapper;
+import guru.sfg.beer.order.service.web.mappers.OrderStatusMapper;
+import guru.sfg.beer.order.service.web.model.BeerOrderSummaryDto;
+import guru.sfg.beer.order.service.web.model.BeerOrderSummaryPagedList;
+import guru.sfg.beer.order.service.web.model.OrderStatusBatchResponse;
+import guru.sfg.beer.order.service.web.model.OrderStatusDto;
 import guru.sfg.brewery.model.BeerOrderDto;
 import guru.sfg.brewery.model.BeerOrderPagedList;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -46,6 +61,10 @@ public class BeerOrderServiceImpl implements BeerOrderService {
     private final CustomerRepository customerRepository;
     private final BeerOrderMapper beerOrderMapper;
     private final BeerOrderManager beerOrderManager;
+    private final BeerOrderDtoCache beerOrderDtoCache;
+    private final OrderStatusMapper orderStatusMapper;
+    private final BeerOrderSummaryMapper beerOrderSummaryMapper;
+    private final PlacementKeyIndex placementKeyIndex;
 
     @Override
     public BeerOrderPagedList listOrders(UUID customerId, Pageable pageable) {
@@ -55,10 +74,10 @@ public class BeerOrderServiceImpl implements BeerOrderService {
             Page<BeerOrder> beerOrderPage =
                     beerOrderRepository.findAllByCustomer(customerOptional.get(), pageable);
 
-            return new BeerOrderPagedList(beerOrderPage
-                    .stream()
-                    .map(beerOrderMapper::beerOrderToDto)
-                    .collect(Collectors.toList()), PageRequest.of(
+            List<BeerOrderDto> beerOrderDtos = new ArrayList<>(beerOrderPage.getNumberOfElements());
+            beerOrderPage.forEach(beerOrder -> beerOrderDtos.add(beerOrderMapper.beerOrderToDto(beerOrder)));
+
+            return new BeerOrderPagedList(beerOrderDtos, PageRequest.of(
                     beerOrderPage.getPageable().getPageNumber(),
                     beerOrderPage.getPageable().getPageSize()),
                     beerOrderPage.getTotalElements());
@@ -67,20 +86,71 @@ public class BeerOrderServiceImpl implements BeerOrderService {
         }
     }
 
-    @Transactional
+    @Override
+    public BeerOrderSummaryPagedList listOrderSummaries(UUID customerId, Pageable pageable) {
+        // header columns only: no line fetch and no beer service lookups
+        Page<BeerOrderSummaryView> summaryPage = beerOrderRepository.findSummariesByCustomerId(customerId, pageable);
+
+        List<BeerOrderSummaryDto> summaryDtos = new ArrayList<>(summaryPage.getNumberOfElements());
+        summaryPage.forEach(summary -> summaryDtos.add(beerOrderSummaryMapper.summaryToDto(summary)));
+
+        return new BeerOrderSummaryPagedList(summaryDtos, PageRequest.of(
+                summaryPage.getPageable().getPageNumber(),
+                summaryPage.getPageable().getPageSize()),
+                summaryPage.getTotalElements());
+    }
+
     @Override
     public BeerOrderDto placeOrder(UUID customerId, BeerOrderDto beerOrderDto) {
+        return placeOrder(customerId, beerOrderDto, null);
+    }
+
+    /**
+     * Not transactional itself: the order is committed by the manager, so a unique key violation from a
+     * concurrent duplicate can be answered with the order that won.
+     */
+    @Override
+    public BeerOrderDto placeOrder(UUID customerId, BeerOrderDto beerOrderDto, String idempotencyKey) {
         Optional<Customer> customerOptional = customerRepository.findById(customerId);
 
         if (customerOptional.isPresent()) {
+            String placementKey = idempotencyKey != null ? idempotencyKey : beerOrderDto.getCustomerRef();
+
+            if (placementKey != null) {
+                Optional<UUID> existingOrderId = placementKeyIndex.findExisting(customerId, placementKey);
+
+                if (existingOrderId.isPresent()) {
+                    log.debug("Order already placed with key " + placementKey + ": " + existingOrderId.get());
+                    return getOrderById(customerId, existingOrderId.get());
+                }
+            }
+
             BeerOrder beerOrder = beerOrderMapper.dtoToBeerOrder(beerOrderDto);
             beerOrder.setId(null); //should not be set by outside client
             beerOrder.setCustomer(customerOptional.get());
             beerOrder.setOrderStatus(BeerOrderStatusEnum.NEW);
+            beerOrder.setPlacementKey(placementKey);
 
             beerOrder.getBeerOrderLines().forEach(line -> line.setBeerOrder(beerOrder));
 
-            BeerOrder savedBeerOrder = beerOrderManager.newBeerOrder(beerOrder);
+            BeerOrder savedBeerOrder;
+            try {
+                savedBeerOrder = beerOrderManager.newBeerOrder(beerOrder);
+            } catch (DataIntegrityViolationException e) {
+                // a concurrent request with the same key committed first
+                Optional<UUID> winningOrderId = placementKey == null ? Optional.empty()
+                        : beerOrderRepository.findIdByCustomerIdAndPlacementKey(customerId, placementKey);
+
+                if (winningOrderId.isPresent()) {
+                    placementKeyIndex.record(customerId, placementKey, winningOrderId.get());
+                    return getOrderById(customerId, winningOrderId.get());
+                }
+                throw e;
+            }
+
+            if (placementKey != null) {
+                placementKeyIndex.record(customerId, placementKey, savedBeerOrder.getId());
+            }
 
             log.debug("Saved Beer Order: " + beerOrder.getId());
 
@@ -92,7 +162,57 @@ public class BeerOrderServiceImpl implements BeerOrderService {
 
     @Override
     public BeerOrderDto getOrderById(UUID customerId, UUID orderId) {
-        return beerOrderMapper.beerOrderToDto(getOrder(customerId, orderId));
+        return getOrderById(customerId, orderId, false);
+    }
+
+    @Override
+    public BeerOrderDto getOrderById(UUID customerId, UUID orderId, boolean bypassCache) {
+        if (bypassCache) {
+            return beerOrderMapper.beerOrderToDto(getOrder(customerId, orderId));
+        }
+
+        Long version = getOrderVersion(customerId, orderId).getVersion();
+
+        return beerOrderDtoCache.get(orderId, version).orElseGet(() -> {
+            BeerOrderDto beerOrderDto = beerOrderMapper.beerOrderToDto(getOrder(customerId, orderId));
+            beerOrderDtoCache.put(orderId, version, beerOrderDto);
+            return beerOrderDto;
+        });
+    }
+
+    @Override
+    public BeerOrderSummaryDto getOrderSummaryById(UUID customerId, UUID orderId) {
+        return beerOrderRepository.findSummaryById(orderId)
+                .filter(summary -> customerId.equals(summary.getCustomerId()))
+                .map(beerOrderSummaryMapper::summaryToDto)
+                .orElseThrow(() -> new RuntimeException("Beer Order Not Found"));
+    }
+
+    @Override
+    public OrderStatusBatchResponse getOrderStatuses(UUID customerId, Collection<UUID> orderIds) {
+        Set<UUID> notFound = new LinkedHashSet<>(orderIds);
+        List<OrderStatusDto> orderStatuses = new ArrayList<>(notFound.size());
+
+        if (!notFound.isEmpty()) {
+            for (OrderStatusView orderStatusView :
+                    beerOrderRepository.findStatusesByCustomerIdAndIdIn(customerId, notFound)) {
+                orderStatuses.add(orderStatusMapper.statusToDto(orderStatusView));
+                notFound.remove(orderStatusView.getId());
+            }
+        }
+
+        return new OrderStatusBatchResponse(orderStatuses, new ArrayList<>(notFound));
+    }
+
+    @Override
+    public String getOrderETag(UUID customerId, UUID orderId) {
+        OrderVersion orderVersion = getOrderVersion(customerId, orderId);
+        return ETags.of(orderVersion.getId(), orderVersion.getVersion());
+    }
+
+    @Override
+    public String getOrdersETag(UUID customerId, Pageable pageable) {
+        return ETags.ofPage(beerOrderRepository.findVersionsByCustomerId(customerId, pageable));
     }
 
     @Override
@@ -100,6 +220,12 @@ public class BeerOrderServiceImpl implements BeerOrderService {
         beerOrderManager.beerOrderPickedUp(orderId);
     }
 
+    private OrderVersion getOrderVersion(UUID customerId, UUID orderId) {
+        return beerOrderRepository.findVersionById(orderId)
+                .filter(orderVersion -> customerId.equals(orderVersion.getCustomerId()))
+                .orElseThrow(() -> new RuntimeException("Beer Order Not Found"));
+    }
+
     private BeerOrder getOrder(UUID customerId, UUID orderId){
         Optional<Customer> customerOptional = customerRepository.findById(customerId);
 
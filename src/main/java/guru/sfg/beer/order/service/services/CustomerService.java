@@ -10,4 +10,6 @@ public interface CustomerService {
 
     CustomerPagedList listCustomers(Pageable pageable);
 
+    String getCustomersETag(Pageable pageable);
+
 }
@@ -3,6 +3,7 @@ package guru.sfg.beer.order.service.services;
 import guru.sfg.beer.order.service.domain.Customer;
 import guru.sfg.beer.order.service.repositories.CustomerRepository;
 import guru.sfg.beer.order.service.web.mappers.CustomerMapper;
+import guru.sfg.brewery.model.CustomerDto;
 import guru.sfg.brewery.model.CustomerPagedList;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,7 +12,8 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by jt on 3/7/20.
@@ -27,14 +29,19 @@ public class CustomerServiceImpl implements CustomerService {
     @Override
     public CustomerPagedList listCustomers(Pageable pageable) {
 
-        Page<Customer> customerPage = customerRepository.findAll(pageable);
+        Page<Customer> customerPage = customerRepository.findAllOrderById(pageable);
 
-        return new CustomerPagedList(customerPage
-                        .stream()
-                        .map(customerMapper::customerToDto)
-                        .collect(Collectors.toList()),
+        List<CustomerDto> customerDtos = new ArrayList<>(customerPage.getNumberOfElements());
+        customerPage.forEach(customer -> customerDtos.add(customerMapper.customerToDto(customer)));
+
+        return new CustomerPagedList(customerDtos,
                     PageRequest.of(customerPage.getPageable().getPageNumber(),
                         customerPage.getPageable().getPageSize()),
                         customerPage.getTotalElements());
     }
+
+    @Override
+    public String getCustomersETag(Pageable pageable) {
+        return ETags.ofPage(customerRepository.findAllVersions(pageable));
+    }
 }
@@ -0,0 +1,44 @@
+package guru.sfg.beer.order.service.services;
+
+import guru.sfg.beer.order.service.repositories.projections.EntityVersion;
+import org.springframework.data.domain.Page;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Strong entity tags built from entity ids and versions, so they can be computed without loading or
+ * mapping the entities.
+ */
+public final class ETags {
+    public static final String SUMMARY_VIEW = "summary";
+
+    private ETags() {
+    }
+
+    public static String of(UUID id, Long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * Tag of another view of the same content, so a cache never answers a request for one view with the other.
+     */
+    public static String ofView(String view, String eTag) {
+        return "\"" + view + "-" + eTag.substring(1);
+    }
+
+    /**
+     * Hash over the position, total and the id and version of every element of a page.
+     */
+    public static String ofPage(Page<? extends EntityVersion> page) {
+        StringBuilder content = new StringBuilder(64 + page.getNumberOfElements() * 48)
+                .append(page.getNumber()).append(':')
+                .append(page.getSize()).append(':')
+                .append(page.getTotalElements());
+
+        page.forEach(entity -> content.append(';').append(entity.getId()).append('-').append(entity.getVersion()));
+
+        return "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
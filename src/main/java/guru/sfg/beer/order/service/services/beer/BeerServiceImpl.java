@@ -1,6 +1,9 @@
 package guru.sfg.beer.order.service.services.beer;
 
+import guru.sfg.beer.order.service.jfr.BeerServiceCallEvent;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
 import guru.sfg.brewery.model.BeerDto;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.stereotype.Service;
@@ -8,6 +11,7 @@ import org.springframework.web.client.RestTemplate;
 
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 /**
  * Created by jt on 2019-06-09.
@@ -18,21 +22,42 @@ public class BeerServiceImpl implements BeerService {
     public final static String BEER_PATH_V1 = "/api/v1/beer/";
     public final static String BEER_UPC_PATH_V1 = "/api/v1/beerUpc/";
     private final RestTemplate restTemplate;
+    private final BeerOrderMetrics beerOrderMetrics;
 
     private String beerServiceHost;
 
-    public BeerServiceImpl(RestTemplateBuilder restTemplateBuilder) {
+    public BeerServiceImpl(RestTemplateBuilder restTemplateBuilder, BeerOrderMetrics beerOrderMetrics) {
         this.restTemplate = restTemplateBuilder.build();
+        this.beerOrderMetrics = beerOrderMetrics;
     }
 
     @Override
     public Optional<BeerDto> getBeerById(UUID uuid){
-        return Optional.of(restTemplate.getForObject(beerServiceHost + BEER_PATH_V1 + uuid.toString(), BeerDto.class));
+        return call("getBeerById",
+                () -> restTemplate.getForObject(beerServiceHost + BEER_PATH_V1 + uuid.toString(), BeerDto.class));
     }
 
     @Override
     public Optional<BeerDto> getBeerByUpc(String upc) {
-        return Optional.of(restTemplate.getForObject(beerServiceHost + BEER_UPC_PATH_V1 + upc, BeerDto.class));
+        return call("getBeerByUpc",
+                () -> restTemplate.getForObject(beerServiceHost + BEER_UPC_PATH_V1 + upc, BeerDto.class));
+    }
+
+    private Optional<BeerDto> call(String operation, Supplier<BeerDto> request) {
+        BeerServiceCallEvent callEvent = BeerServiceCallEvent.start();
+        Timer.Sample sample = beerOrderMetrics.startTimer();
+
+        try {
+            Optional<BeerDto> beerDto = Optional.of(request.get());
+            sample.stop(beerOrderMetrics.beerServiceTimer(operation, "success"));
+            callEvent.finish(operation, "success");
+            return beerDto;
+        } catch (RuntimeException e) {
+            sample.stop(beerOrderMetrics.beerServiceTimer(operation, "error"));
+            callEvent.finish(operation, "error");
+            beerOrderMetrics.beerServiceErrors(operation, e.getClass().getSimpleName()).increment();
+            throw e;
+        }
     }
 
     public void setBeerServiceHost(String beerServiceHost) {
@@ -0,0 +1,355 @@
+package guru.sfg.beer.order.service.services.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.sfg.beer.order.service.admission.AdmissionDecision;
+import guru.sfg.beer.order.service.admission.OrderAdmissionController;
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.ratelimit.CustomerRateLimiter;
+import guru.sfg.beer.order.service.ratelimit.RateLimitProperties;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.CustomerRepository;
+import guru.sfg.beer.order.service.services.BeerOrderManager;
+import guru.sfg.beer.order.service.services.idempotency.PlacementKeyIndex;
+import guru.sfg.beer.order.service.web.mappers.BeerOrderMapper;
+import guru.sfg.beer.order.service.web.model.BulkOrderResponse;
+import guru.sfg.beer.order.service.web.model.BulkOrderResult;
+import guru.sfg.brewery.model.BeerOrderDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Places a stream of orders (NDJSON or a JSON array) for one customer.
+ *
+ * Orders are read one at a time and saved in chunks, each chunk in one transaction with a single flush, so
+ * Hibernate sends the order and line inserts in JDBC batches. Validation of the whole set is requested by
+ * the fair queue once each chunk commits. A chunk that fails to save rejects only its own orders.
+ *
+ * Orders are keyed on customerRef like single placements: one the customer already placed is reported as
+ * a duplicate with the original order id, and a customerRef repeated within the request is rejected. A
+ * concurrent request that places the same key first is caught by the unique key and answered the same way.
+ *
+ * The request interceptors charge the request like a single placement. Its orders are charged a chunk at a
+ * time against the customer's bulk placement budget, and each chunk must fit under the admission limit
+ * before it is saved. Once either turns a chunk away, reading stops.
+ */
+@Slf4j
+@Service
+public class BulkOrderPlacementService {
+
+    static final String INVALID_ORDER = "Invalid order";
+    static final String SAVE_FAILED = "Order could not be saved";
+
+    private final BeerOrderManager beerOrderManager;
+    private final CustomerRepository customerRepository;
+    private final BeerOrderRepository beerOrderRepository;
+    private final BeerOrderMapper beerOrderMapper;
+    private final ObjectMapper objectMapper;
+    private final PlacementKeyIndex placementKeyIndex;
+    private final CustomerRateLimiter customerRateLimiter;
+    private final RateLimitProperties rateLimitProperties;
+    private final OrderAdmissionController orderAdmissionController;
+    private final int chunkSize;
+    private final int maxOrders;
+
+    public BulkOrderPlacementService(BeerOrderManager beerOrderManager, CustomerRepository customerRepository,
+                                     BeerOrderRepository beerOrderRepository, BeerOrderMapper beerOrderMapper, ObjectMapper objectMapper,
+                                     PlacementKeyIndex placementKeyIndex, CustomerRateLimiter customerRateLimiter,
+                                     RateLimitProperties rateLimitProperties,
+                                     OrderAdmissionController orderAdmissionController,
+                                     @Value("${sfg.order.bulk.chunk-size:500}") int chunkSize,
+                                     @Value("${sfg.order.bulk.max-orders:5000}") int maxOrders) {
+        this.beerOrderManager = beerOrderManager;
+        this.customerRepository = customerRepository;
+        this.beerOrderRepository = beerOrderRepository;
+        this.beerOrderMapper = beerOrderMapper;
+        this.objectMapper = objectMapper;
+        this.placementKeyIndex = placementKeyIndex;
+        this.customerRateLimiter = customerRateLimiter;
+        this.rateLimitProperties = rateLimitProperties;
+        this.orderAdmissionController = orderAdmissionController;
+        this.chunkSize = chunkSize;
+        this.maxOrders = maxOrders;
+    }
+
+    public BulkOrderResponse placeOrders(UUID customerId, InputStream body) throws IOException {
+        Customer customer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new RuntimeException("Customer Not Found"));
+
+        List<BulkOrderResult> results = new ArrayList<>();
+        Chunk chunk = new Chunk(chunkSize);
+        Set<String> keysInRequest = new HashSet<>();
+        boolean truncated = false;
+        int index = 0;
+        boolean firstChunk = true;
+
+        try (MappingIterator<BeerOrderDto> beerOrderDtos =
+                     objectMapper.readerFor(BeerOrderDto.class).readValues(body)) {
+            while (beerOrderDtos.hasNextValue()) {
+                if (index >= maxOrders) {
+                    truncated = true;
+                    break;
+                }
+
+                BeerOrderDto beerOrderDto;
+                try {
+                    beerOrderDto = beerOrderDtos.nextValue();
+                } catch (JsonProcessingException e) {
+                    // the reader cannot resync after malformed input, keep what was read so far
+                    results.add(rejected(index, null, "Unreadable order: " + e.getOriginalMessage()));
+                    truncated = true;
+                    break;
+                }
+
+                String placementKey = beerOrderDto.getCustomerRef();
+                Optional<UUID> existingOrderId = placementKey == null ? Optional.empty()
+                        : placementKeyIndex.findExisting(customerId, placementKey);
+
+                if (existingOrderId.isPresent()) {
+                    results.add(new BulkOrderResult(index, placementKey, existingOrderId.get(),
+                            BulkOrderResult.DUPLICATE, null));
+                } else if (placementKey != null && !keysInRequest.add(placementKey)) {
+                    results.add(rejected(index, placementKey, "Duplicate customerRef in request"));
+                } else {
+                    try {
+                        chunk.add(index, toBeerOrder(customer, beerOrderDto));
+                    } catch (RuntimeException e) {
+                        log.debug("Unable to map bulk order " + index + " for customer " + customerId, e);
+                        results.add(rejected(index, placementKey, INVALID_ORDER));
+                    }
+                }
+                index++;
+
+                if (chunk.isFull()) {
+                    boolean saved = save(customerId, chunk, results, firstChunk);
+                    firstChunk = false;
+
+                    if (!saved) {
+                        truncated = true;
+                        break;
+                    }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            results.add(rejected(index, null, "Unreadable order: " + e.getOriginalMessage()));
+            truncated = true;
+        }
+
+        if (!save(customerId, chunk, results, firstChunk)) {
+            truncated = true;
+        }
+
+        results.sort(Comparator.comparingInt(BulkOrderResult::getIndex));
+        int created = count(results, BulkOrderResult.CREATED);
+        int duplicate = count(results, BulkOrderResult.DUPLICATE);
+
+        log.debug("Bulk placed " + created + " of " + results.size() + " orders for customer " + customerId);
+
+        return new BulkOrderResponse(created, duplicate, results.size() - created - duplicate, truncated, results);
+    }
+
+    private BeerOrder toBeerOrder(Customer customer, BeerOrderDto beerOrderDto) {
+        BeerOrder beerOrder = beerOrderMapper.dtoToBeerOrder(beerOrderDto);
+        beerOrder.setId(null); //should not be set by outside client
+        beerOrder.setCustomer(customer);
+        beerOrder.setPlacementKey(beerOrderDto.getCustomerRef());
+
+        if (beerOrder.getBeerOrderLines() != null) {
+            beerOrder.getBeerOrderLines().forEach(line -> line.setBeerOrder(beerOrder));
+        }
+        return beerOrder;
+    }
+
+    private boolean tryConsumeRateLimit(UUID customerId, int orders) {
+        return !rateLimitProperties.isEnabled()
+                || customerRateLimiter.tryConsumeBulk(customerId, orders).isAllowed();
+    }
+
+    /**
+     * Saves the chunk if it fits in the customer's bulk budget and under the admission limit. The first
+     * chunk's first order was admitted by the interceptor.
+     *
+     * @return false when the rate limit or admission control turned the chunk away
+     */
+    private boolean save(UUID customerId, Chunk chunk, List<BulkOrderResult> results, boolean firstChunk) {
+        if (chunk.beerOrders.isEmpty()) {
+            return true;
+        }
+
+        if (!tryConsumeRateLimit(customerId, chunk.size())) {
+            rejectAll(chunk, results, "Order rate limit exceeded");
+            return false;
+        }
+
+        int toAdmit = firstChunk ? chunk.size() - 1 : chunk.size();
+        AdmissionDecision decision = toAdmit > 0 ? orderAdmissionController.tryAdmit(toAdmit)
+                : AdmissionDecision.ADMITTED;
+
+        if (!decision.isAdmitted()) {
+            rejectAll(chunk, results, "Order placement is overloaded: " + decision);
+            return false;
+        }
+
+        try {
+            placeChunk(customerId, chunk, results);
+        } catch (RuntimeException e) {
+            log.error("Unable to save a chunk of " + chunk.beerOrders.size() + " bulk orders", e);
+            rejectAll(chunk, results, SAVE_FAILED);
+        }
+
+        chunk.clear();
+        return true;
+    }
+
+    /**
+     * Saves the chunk in one transaction. When a concurrent request placed some of its keys first, those
+     * orders are reported as duplicates of the winning orders and the rest are saved again.
+     */
+    private void placeChunk(UUID customerId, Chunk chunk, List<BulkOrderResult> results) {
+        while (true) {
+            try {
+                List<BeerOrder> savedBeerOrders = beerOrderManager.newBeerOrders(chunk.beerOrders);
+
+                for (int i = 0; i < savedBeerOrders.size(); i++) {
+                    BeerOrder savedBeerOrder = savedBeerOrders.get(i);
+                    if (savedBeerOrder.getPlacementKey() != null) {
+                        placementKeyIndex.record(customerId, savedBeerOrder.getPlacementKey(),
+                                savedBeerOrder.getId());
+                    }
+                    results.add(new BulkOrderResult(chunk.indexes.get(i), savedBeerOrder.getCustomerRef(),
+                            savedBeerOrder.getId(), BulkOrderResult.CREATED, null));
+                }
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (!removePlacedKeys(customerId, chunk, results)) {
+                    throw e;
+                }
+                chunk.beerOrders.forEach(BulkOrderPlacementService::resetForRetry);
+
+                if (chunk.beerOrders.isEmpty()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports the orders of the chunk whose key is already placed as duplicates and takes them out.
+     *
+     * @return false when no key of the chunk is placed, so the violation was something else
+     */
+    private boolean removePlacedKeys(UUID customerId, Chunk chunk, List<BulkOrderResult> results) {
+        Set<String> placementKeys = new HashSet<>();
+        chunk.beerOrders.forEach(beerOrder -> {
+            if (beerOrder.getPlacementKey() != null) {
+                placementKeys.add(beerOrder.getPlacementKey());
+            }
+        });
+
+        if (placementKeys.isEmpty()) {
+            return false;
+        }
+
+        Map<String, UUID> placedOrderIds = new HashMap<>();
+        beerOrderRepository.findByCustomerIdAndPlacementKeyIn(customerId, placementKeys)
+                .forEach(placed -> placedOrderIds.put(placed.getPlacementKey(), placed.getId()));
+
+        if (placedOrderIds.isEmpty()) {
+            return false;
+        }
+
+        for (int i = chunk.beerOrders.size() - 1; i >= 0; i--) {
+            String placementKey = chunk.beerOrders.get(i).getPlacementKey();
+            UUID placedOrderId = placementKey == null ? null : placedOrderIds.get(placementKey);
+
+            if (placedOrderId != null) {
+                placementKeyIndex.record(customerId, placementKey, placedOrderId);
+                results.add(new BulkOrderResult(chunk.indexes.get(i), chunk.beerOrders.get(i).getCustomerRef(),
+                        placedOrderId, BulkOrderResult.DUPLICATE, null));
+                chunk.remove(i);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Clears what the rolled back persist assigned, so the order and its lines are inserted afresh.
+     */
+    private static void resetForRetry(BeerOrder beerOrder) {
+        beerOrder.setId(null);
+        beerOrder.setVersion(null);
+
+        if (beerOrder.getBeerOrderLines() != null) {
+            beerOrder.getBeerOrderLines().forEach(line -> {
+                line.setId(null);
+                line.setVersion(null);
+            });
+        }
+    }
+
+    private static void rejectAll(Chunk chunk, List<BulkOrderResult> results, String error) {
+        for (int i = 0; i < chunk.beerOrders.size(); i++) {
+            results.add(rejected(chunk.indexes.get(i), chunk.beerOrders.get(i).getCustomerRef(), error));
+        }
+        chunk.clear();
+    }
+
+    private static int count(List<BulkOrderResult> results, String status) {
+        return (int) results.stream().filter(result -> status.equals(result.getStatus())).count();
+    }
+
+    private static BulkOrderResult rejected(int index, String customerRef, String error) {
+        return new BulkOrderResult(index, customerRef, null, BulkOrderResult.REJECTED, error);
+    }
+
+    private static class Chunk {
+        private final int size;
+        private final List<Integer> indexes;
+        private final List<BeerOrder> beerOrders;
+
+        Chunk(int size) {
+            this.size = size;
+            this.indexes = new ArrayList<>(size);
+            this.beerOrders = new ArrayList<>(size);
+        }
+
+        void add(int index, BeerOrder beerOrder) {
+            indexes.add(index);
+            beerOrders.add(beerOrder);
+        }
+
+        boolean isFull() {
+            return beerOrders.size() >= size;
+        }
+
+        int size() {
+            return beerOrders.size();
+        }
+
+        void remove(int position) {
+            indexes.remove(position);
+            beerOrders.remove(position);
+        }
+
+        void clear() {
+            indexes.clear();
+            beerOrders.clear();
+        }
+    }
+}
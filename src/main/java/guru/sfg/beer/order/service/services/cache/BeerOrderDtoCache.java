@@ -0,0 +1,85 @@
+package guru.sfg.beer.order.service.services.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.services.BeerOrderAllocationUpdatedEvent;
+import guru.sfg.beer.order.service.sm.BeerOrderStatusChangedEvent;
+import guru.sfg.brewery.model.BeerOrderDto;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Fully mapped orders keyed by order id and stamped with the order's content version.
+ *
+ * An entry is only returned when its version matches the version the caller just read, so a missed
+ * invalidation can never serve stale data. Entries are also dropped once a status change or allocation
+ * update commits, which keeps memory for orders that are still changing. Weighted by line count.
+ */
+@Component
+public class BeerOrderDtoCache {
+    public static final String CACHE_NAME = "beerOrderDto";
+    public static final String BYPASS_HEADER = "X-Cache-Bypass";
+
+    private final Cache<UUID, CachedOrder> cache;
+
+    public BeerOrderDtoCache(BeerOrderMetrics beerOrderMetrics,
+                             @Value("${sfg.order.dto-cache.max-weight:20000}") long maxWeight,
+                             @Value("${sfg.order.dto-cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((UUID orderId, CachedOrder cachedOrder) -> cachedOrder.weight())
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(beerOrderMetrics.getMeterRegistry(), cache, CACHE_NAME);
+    }
+
+    public Optional<BeerOrderDto> get(UUID orderId, Long version) {
+        CachedOrder cachedOrder = cache.getIfPresent(orderId);
+
+        if (cachedOrder == null || !cachedOrder.version.equals(version)) {
+            return Optional.empty();
+        }
+        return Optional.of(cachedOrder.beerOrderDto);
+    }
+
+    public void put(UUID orderId, Long version, BeerOrderDto beerOrderDto) {
+        cache.put(orderId, new CachedOrder(version, beerOrderDto));
+    }
+
+    public void invalidate(UUID orderId) {
+        cache.invalidate(orderId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(BeerOrderStatusChangedEvent event) {
+        invalidate(event.getOrderId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAllocationUpdated(BeerOrderAllocationUpdatedEvent event) {
+        invalidate(event.getOrderId());
+    }
+
+    private static class CachedOrder {
+        private final Long version;
+        private final BeerOrderDto beerOrderDto;
+
+        CachedOrder(Long version, BeerOrderDto beerOrderDto) {
+            this.version = version;
+            this.beerOrderDto = beerOrderDto;
+        }
+
+        int weight() {
+            return 1 + (beerOrderDto.getBeerOrderLines() != null ? beerOrderDto.getBeerOrderLines().size() : 0);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package guru.sfg.beer.order.service.services.changes;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in the order change feed: the (lastModifiedDate, id) of the last change a consumer has seen.
+ * Opaque to clients.
+ */
+@Getter
+@EqualsAndHashCode
+public final class ChangeFeedToken {
+
+    public static final ChangeFeedToken START = new ChangeFeedToken(new Timestamp(0), new UUID(0, 0));
+
+    private final Timestamp lastModifiedDate;
+    private final UUID id;
+
+    public ChangeFeedToken(Timestamp lastModifiedDate, UUID id) {
+        this.lastModifiedDate = lastModifiedDate;
+        this.id = id;
+    }
+
+    public String encode() {
+        Instant instant = lastModifiedDate.toInstant();
+        String position = instant.getEpochSecond() + "." + instant.getNano() + ":" + id;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not issued by {@link #encode()}
+     */
+    public static ChangeFeedToken decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return START;
+        }
+
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            int idSeparator = position.indexOf(':');
+            int nanoSeparator = position.indexOf('.');
+
+            if (idSeparator < 0 || nanoSeparator < 0 || nanoSeparator > idSeparator) {
+                throw new IllegalArgumentException("Malformed change feed token");
+            }
+
+            Instant instant = Instant.ofEpochSecond(Long.parseLong(position.substring(0, nanoSeparator)),
+                    Long.parseLong(position.substring(nanoSeparator + 1, idSeparator)));
+
+            return new ChangeFeedToken(Timestamp.from(instant), UUID.fromString(position.substring(idSeparator + 1)));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("Malformed change feed token", e);
+        }
+    }
+}
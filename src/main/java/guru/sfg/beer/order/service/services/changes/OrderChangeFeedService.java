@@ -0,0 +1,293 @@
+package guru.sfg.beer.order.service.services.changes;
+
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.projections.OrderChangeView;
+import guru.sfg.beer.order.service.services.BeerOrderAllocationUpdatedEvent;
+import guru.sfg.beer.order.service.sm.BeerOrderStatusChangedEvent;
+import guru.sfg.beer.order.service.web.mappers.OrderStatusMapper;
+import guru.sfg.beer.order.service.web.model.OrderChangeDto;
+import guru.sfg.beer.order.service.web.model.OrderChangeFeed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feed of order changes in (lastModifiedDate, id) order, resumed from a continuation token.
+ *
+ * Only changes older than the safety lag are returned. Transactions can commit in a different order than
+ * they stamped lastModifiedDate, and the lag keeps a late commit from landing behind a token that was
+ * already handed out.
+ *
+ * Consumers that are caught up can long poll. Their requests are parked by position and served again once
+ * an order change has had time to pass the safety lag, or answered empty when the wait runs out. A serve
+ * pass reads the changes after the earliest parked position once and hands every later position its part
+ * of them, so the queries follow the number of distinct positions rather than the number of consumers. At
+ * most {@code max-waiters} requests are parked; further ones are answered 503.
+ *
+ * Only changes committed on this instance start a serve pass. A consumer parked here learns of changes
+ * committed on another instance when its wait runs out and it polls again.
+ */
+@Slf4j
+@Service
+public class OrderChangeFeedService {
+
+    private static final Comparator<ChangeFeedToken> POSITION_ORDER =
+            // ids are stored as text, so they sort by their string form in the database
+            Comparator.comparing(ChangeFeedToken::getLastModifiedDate)
+                    .thenComparing(token -> token.getId().toString());
+
+    private final BeerOrderRepository beerOrderRepository;
+    private final OrderStatusMapper orderStatusMapper;
+    private final Duration safetyLag;
+    private final int maxWaiters;
+
+    private final NavigableMap<ChangeFeedToken, Set<Waiter>> waiters = new TreeMap<>(POSITION_ORDER);
+    private final AtomicBoolean serveScheduled = new AtomicBoolean();
+    private final AtomicLong lastChangeAt = new AtomicLong();
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("order-change-feed-"));
+    private int waiting;
+
+    public OrderChangeFeedService(BeerOrderRepository beerOrderRepository, OrderStatusMapper orderStatusMapper,
+                                  @Value("${sfg.order.changes.safety-lag:2s}") Duration safetyLag,
+                                  @Value("${sfg.order.changes.max-waiters:10000}") int maxWaiters) {
+        this.beerOrderRepository = beerOrderRepository;
+        this.orderStatusMapper = orderStatusMapper;
+        this.safetyLag = safetyLag;
+        this.maxWaiters = maxWaiters;
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public OrderChangeFeed getChanges(ChangeFeedToken since, int limit) {
+        Timestamp upTo = new Timestamp(System.currentTimeMillis() - safetyLag.toMillis());
+
+        List<OrderChangeView> changes = beerOrderRepository.findChangesAfter(since.getLastModifiedDate(),
+                since.getId(), upTo, PageRequest.of(0, limit));
+
+        return toFeed(since, changes, changes.size() < limit);
+    }
+
+    /**
+     * Answers at once when there are changes after {@code since}, otherwise waits up to {@code wait} for some.
+     */
+    public DeferredResult<OrderChangeFeed> awaitChanges(ChangeFeedToken since, int limit, Duration wait) {
+        OrderChangeFeed feed = getChanges(since, limit);
+
+        if (!feed.getChanges().isEmpty() || wait.isZero() || wait.isNegative()) {
+            DeferredResult<OrderChangeFeed> result = new DeferredResult<>();
+            result.setResult(feed);
+            return result;
+        }
+
+        DeferredResult<OrderChangeFeed> result = new DeferredResult<>(wait.toMillis(), feed);
+        Waiter waiter = new Waiter(limit, result);
+
+        if (!park(since, waiter)) {
+            result.setErrorResult(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many consumers waiting for order changes"));
+            return result;
+        }
+
+        result.onCompletion(() -> unpark(since, waiter));
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(BeerOrderStatusChangedEvent event) {
+        scheduleServe();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAllocationUpdated(BeerOrderAllocationUpdatedEvent event) {
+        scheduleServe();
+    }
+
+    private synchronized boolean park(ChangeFeedToken since, Waiter waiter) {
+        if (waiting >= maxWaiters) {
+            return false;
+        }
+
+        waiters.computeIfAbsent(since, position -> new HashSet<>()).add(waiter);
+        waiting++;
+        return true;
+    }
+
+    private synchronized void unpark(ChangeFeedToken since, Waiter waiter) {
+        Set<Waiter> atPosition = waiters.get(since);
+
+        if (atPosition != null && atPosition.remove(waiter)) {
+            waiting--;
+
+            if (atPosition.isEmpty()) {
+                waiters.remove(since);
+            }
+        }
+    }
+
+    /**
+     * Parked positions in feed order with their waiters.
+     */
+    private synchronized List<Position> parkedPositions() {
+        List<Position> positions = new ArrayList<>(waiters.size());
+        waiters.forEach((since, atPosition) -> positions.add(new Position(since, new ArrayList<>(atPosition))));
+        return positions;
+    }
+
+    private void scheduleServe() {
+        long now = System.currentTimeMillis();
+        lastChangeAt.accumulateAndGet(now, Math::max);
+
+        // one pending pass at most, however many orders change meanwhile. Scheduled even without waiters,
+        // so a consumer that parks before the pass runs still sees this change
+        if (serveScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::serveWaiters, safetyLag.toMillis() + 1, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void serveWaiters() {
+        long visibleUpTo = System.currentTimeMillis() - safetyLag.toMillis();
+
+        serveWaiting();
+        serveScheduled.set(false);
+
+        // changes made while this pass was pending were not visible to it yet
+        long pendingChangeAt = lastChangeAt.get();
+        if (pendingChangeAt >= visibleUpTo && serveScheduled.compareAndSet(false, true)) {
+            long delay = pendingChangeAt + safetyLag.toMillis() + 1 - System.currentTimeMillis();
+            scheduler.schedule(this::serveWaiters, Math.max(delay, 1), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reads the changes after the earliest parked position and serves every position before the last change
+     * read from that one page. Positions at or after it are read again from there, until a page comes back
+     * short, which means the positions after it have nothing new.
+     */
+    private void serveWaiting() {
+        List<Position> positions = parkedPositions();
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        int pageSize = 1;
+        for (Position position : positions) {
+            for (Waiter waiter : position.waiters) {
+                pageSize = Math.max(pageSize, waiter.limit);
+            }
+        }
+
+        Timestamp upTo = new Timestamp(System.currentTimeMillis() - safetyLag.toMillis());
+        int next = 0;
+
+        try {
+            while (next < positions.size()) {
+                ChangeFeedToken cursor = positions.get(next).since;
+                List<OrderChangeView> changes = beerOrderRepository.findChangesAfter(cursor.getLastModifiedDate(),
+                        cursor.getId(), upTo, PageRequest.of(0, pageSize));
+
+                if (changes.isEmpty()) {
+                    return;
+                }
+
+                boolean exhausted = changes.size() < pageSize;
+                ChangeFeedToken lastChange = positionOf(changes.get(changes.size() - 1));
+
+                while (next < positions.size() && POSITION_ORDER.compare(positions.get(next).since, lastChange) < 0) {
+                    serve(positions.get(next), changes, exhausted);
+                    next++;
+                }
+
+                if (exhausted) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Unable to read order changes for waiting consumers", e);
+
+            for (int i = next; i < positions.size(); i++) {
+                positions.get(i).waiters.forEach(waiter -> waiter.result.setErrorResult(e));
+            }
+        }
+    }
+
+    /**
+     * Serves the waiters at the position from the page, which holds at least one change after it.
+     */
+    private void serve(Position position, List<OrderChangeView> changes, boolean exhausted) {
+        int from = 0;
+        while (POSITION_ORDER.compare(positionOf(changes.get(from)), position.since) <= 0) {
+            from++;
+        }
+
+        for (Waiter waiter : position.waiters) {
+            if (waiter.result.isSetOrExpired()) {
+                continue;
+            }
+
+            List<OrderChangeView> after = changes.subList(from, Math.min(changes.size(), from + waiter.limit));
+            waiter.result.setResult(toFeed(position.since, after, exhausted && after.size() < waiter.limit));
+        }
+    }
+
+    private OrderChangeFeed toFeed(ChangeFeedToken since, List<OrderChangeView> changes, boolean caughtUp) {
+        if (changes.isEmpty()) {
+            return new OrderChangeFeed(Collections.emptyList(), since.encode(), true);
+        }
+
+        List<OrderChangeDto> changeDtos = new ArrayList<>(changes.size());
+        changes.forEach(change -> changeDtos.add(orderStatusMapper.changeToDto(change)));
+
+        return new OrderChangeFeed(changeDtos, positionOf(changes.get(changes.size() - 1)).encode(), caughtUp);
+    }
+
+    private static ChangeFeedToken positionOf(OrderChangeView change) {
+        return new ChangeFeedToken(change.getLastModifiedDate(), change.getId());
+    }
+
+    private static class Position {
+        private final ChangeFeedToken since;
+        private final List<Waiter> waiters;
+
+        Position(ChangeFeedToken since, List<Waiter> waiters) {
+            this.since = since;
+            this.waiters = waiters;
+        }
+    }
+
+    private static class Waiter {
+        private final int limit;
+        private final DeferredResult<OrderChangeFeed> result;
+
+        Waiter(int limit, DeferredResult<OrderChangeFeed> result) {
+            this.limit = limit;
+            this.result = result;
+        }
+    }
+}
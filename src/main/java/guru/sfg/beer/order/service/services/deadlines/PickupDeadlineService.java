@@ -0,0 +1,192 @@
+package guru.sfg.beer.order.service.services.deadlines;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.projections.OrderModifiedRef;
+import guru.sfg.beer.order.service.services.BeerOrderManager;
+import guru.sfg.beer.order.service.services.scheduling.SchedulerLeases;
+import guru.sfg.beer.order.service.sm.BeerOrderStatusChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Cancels allocated orders that are not picked up within the pickup timeout, so their inventory is released
+ * by the deallocation the CANCEL_ORDER transition sends.
+ *
+ * Only the instance holding the pickup lease tracks deadlines and cancels orders, so an expired order is
+ * cancelled and deallocated once. On taking the lease it fills a timer wheel from the allocated orders, then
+ * adds the orders allocated since on a sync interval, each sync reading one interval back to cover late
+ * commits; its own status changes update the wheel at once. Expired orders are cancelled in batches, one
+ * transaction per batch, and only if they are still allocated; a deadline left behind by a change made on
+ * another instance finds the order moved on and is dropped.
+ */
+@Slf4j
+@Service
+public class PickupDeadlineService {
+
+    static final String LEASE_NAME = "pickup-deadlines";
+
+    private final BeerOrderRepository beerOrderRepository;
+    private final BeerOrderManager beerOrderManager;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLeases schedulerLeases;
+    private final Duration pickupTimeout;
+    private final Duration leaseDuration;
+    private final Duration syncInterval;
+    private final int batchSize;
+    private final int maxPerPoll;
+    private final TimerWheel<UUID> deadlines;
+
+    private final Counter cancelled;
+    private final Counter movedOn;
+
+    // leadership and sync state, only touched by the scheduled poll apart from the leader flag
+    private volatile boolean leader;
+    private long leaseCheckedAt;
+    private long syncedAt;
+
+    public PickupDeadlineService(BeerOrderRepository beerOrderRepository, BeerOrderManager beerOrderManager,
+                                 TransactionTemplate transactionTemplate, SchedulerLeases schedulerLeases,
+                                 BeerOrderMetrics beerOrderMetrics,
+                                 @Value("${sfg.order.pickup.timeout:48h}") Duration pickupTimeout,
+                                 @Value("${sfg.order.deadlines.lease:1m}") Duration leaseDuration,
+                                 @Value("${sfg.order.deadlines.sync-interval:1m}") Duration syncInterval,
+                                 @Value("${sfg.order.deadlines.tick:1s}") Duration tick,
+                                 @Value("${sfg.order.deadlines.batch-size:100}") int batchSize,
+                                 @Value("${sfg.order.deadlines.max-per-poll:1000}") int maxPerPoll) {
+        this.beerOrderRepository = beerOrderRepository;
+        this.beerOrderManager = beerOrderManager;
+        this.transactionTemplate = transactionTemplate;
+        this.schedulerLeases = schedulerLeases;
+        this.pickupTimeout = pickupTimeout;
+        this.leaseDuration = leaseDuration;
+        this.syncInterval = syncInterval;
+        this.batchSize = batchSize;
+        this.maxPerPoll = maxPerPoll;
+        this.deadlines = new TimerWheel<>(tick.toMillis(), System.currentTimeMillis());
+
+        this.cancelled = beerOrderMetrics.pickupExpirations("cancelled");
+        this.movedOn = beerOrderMetrics.pickupExpirations("moved_on");
+        Gauge.builder(BeerOrderMetrics.PREFIX + ".pickup.deadlines", deadlines, TimerWheel::size)
+                .description("Pickup deadlines held in memory")
+                .register(beerOrderMetrics.getMeterRegistry());
+    }
+
+    /**
+     * Schedules the deadlines of the orders allocated since the given time.
+     */
+    private void load(Timestamp since) {
+        AtomicLong loaded = new AtomicLong();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<OrderModifiedRef> allocated = beerOrderRepository.streamByOrderStatusModifiedSince(
+                    BeerOrderStatusEnum.ALLOCATED, since)) {
+                allocated.forEach(order -> {
+                    // the last change of an allocated order is normally its allocation
+                    deadlines.schedule(order.getId(),
+                            order.getLastModifiedDate().getTime() + pickupTimeout.toMillis());
+                    loaded.incrementAndGet();
+                });
+            }
+        });
+
+        log.debug("Loaded " + loaded.get() + " pickup deadlines of orders allocated since " + since);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(BeerOrderStatusChangedEvent event) {
+        if (!leader) {
+            return;
+        }
+
+        if (event.getStatus() == BeerOrderStatusEnum.ALLOCATED) {
+            deadlines.schedule(event.getOrderId(), System.currentTimeMillis() + pickupTimeout.toMillis());
+        } else if (event.getPreviousStatus() == BeerOrderStatusEnum.ALLOCATED) {
+            deadlines.cancel(event.getOrderId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sfg.order.deadlines.poll-interval-ms:1000}")
+    public void expire() {
+        long now = System.currentTimeMillis();
+
+        // renewed well within its duration, so another instance can only take it over after this one stalled
+        if (now - leaseCheckedAt >= leaseDuration.toMillis() / 3) {
+            leaseCheckedAt = now;
+            checkLease();
+        }
+
+        if (!leader) {
+            return;
+        }
+
+        if (now - syncedAt >= syncInterval.toMillis()) {
+            // the first sync after taking the lease loads every allocated order
+            load(new Timestamp(Math.max(0, syncedAt - syncInterval.toMillis())));
+            syncedAt = now;
+        }
+
+        List<UUID> expired = deadlines.poll(now, maxPerPoll);
+
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            List<UUID> batch = expired.subList(from, Math.min(from + batchSize, expired.size()));
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> cancelExpired(batch));
+            } catch (RuntimeException e) {
+                log.error("Unable to cancel " + batch.size() + " orders past their pickup deadline", e);
+                // retried on the next poll
+                batch.forEach(orderId -> deadlines.schedule(orderId, System.currentTimeMillis()));
+            }
+        }
+    }
+
+    private void checkLease() {
+        boolean held;
+        try {
+            held = schedulerLeases.tryAcquire(LEASE_NAME, leaseDuration);
+        } catch (RuntimeException e) {
+            log.error("Unable to renew the pickup deadline lease", e);
+            held = false;
+        }
+
+        if (held && !leader) {
+            log.info("Took the pickup deadline lease, loading deadlines");
+            deadlines.clear();
+            leader = true;
+            syncedAt = 0;
+        } else if (!held && leader) {
+            log.info("Lost the pickup deadline lease, dropping deadlines");
+            leader = false;
+            deadlines.clear();
+        }
+    }
+
+    private void cancelExpired(List<UUID> orderIds) {
+        for (BeerOrder beerOrder : beerOrderRepository.findAllWithLinesByIdIn(orderIds)) {
+            if (beerOrder.getOrderStatus() != BeerOrderStatusEnum.ALLOCATED) {
+                movedOn.increment();
+                continue;
+            }
+
+            log.info("Cancelling order " + beerOrder.getId() + ", not picked up within " + pickupTimeout);
+            beerOrderManager.cancelExpiredOrder(beerOrder);
+            cancelled.increment();
+        }
+    }
+}
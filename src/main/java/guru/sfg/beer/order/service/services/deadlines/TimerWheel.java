@@ -0,0 +1,205 @@
+package guru.sfg.beer.order.service.services.deadlines;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed hierarchical timer wheel holding at most one deadline per key.
+ *
+ * Each level has 64 slots, a slot of level n spanning 64^n ticks. A timer is put in the slot of the lowest
+ * level whose range covers its deadline, and is moved down a level each time the wheel turns onto its slot,
+ * until it expires from level 0. Scheduling and cancelling are O(1): a timer is unlinked from its slot through
+ * the key index. Polling costs the number of ticks passed plus the number of timers expired or moved down.
+ *
+ * Five levels cover 2^30 ticks; deadlines further out are held in the top level and placed again when it
+ * turns. Thread safe.
+ */
+public class TimerWheel<K> {
+
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    static final int SLOT_MASK = SLOTS - 1;
+    static final int LEVELS = 5;
+    static final long MAX_TICKS = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final Timer<K>[][] wheels;
+    private final Map<K, Timer<K>> timers = new HashMap<>();
+
+    // next tick to expire, and the last tick whose upper levels were moved down
+    private long currentTick;
+    private long cascadedTick = -1;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, long nowMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Timer wheel tick must be at least a millisecond");
+        }
+
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        this.wheels = new Timer[LEVELS][SLOTS];
+
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timer<K> head = new Timer<>(null, 0);
+                head.prev = head;
+                head.next = head;
+                wheels[level][slot] = head;
+            }
+        }
+    }
+
+    /**
+     * Sets the deadline of the key, replacing any it had. A deadline already passed expires on the next poll.
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        Timer<K> timer = timers.get(key);
+
+        if (timer != null) {
+            timer.unlink();
+            timer.deadlineTick = toTick(deadlineMillis);
+        } else {
+            timer = new Timer<>(key, toTick(deadlineMillis));
+            timers.put(key, timer);
+        }
+
+        add(timer);
+    }
+
+    /**
+     * @return true when the key had a deadline
+     */
+    public synchronized boolean cancel(K key) {
+        Timer<K> timer = timers.remove(key);
+
+        if (timer == null) {
+            return false;
+        }
+
+        timer.unlink();
+        return true;
+    }
+
+    public synchronized int size() {
+        return timers.size();
+    }
+
+    /**
+     * Removes every deadline.
+     */
+    public synchronized void clear() {
+        timers.values().forEach(Timer::unlink);
+        timers.clear();
+    }
+
+    /**
+     * Turns the wheel up to {@code nowMillis} and removes up to {@code max} expired keys, earliest deadline tick
+     * first. Keys past the limit stay in the wheel and are returned by the next poll.
+     */
+    public synchronized List<K> poll(long nowMillis, int max) {
+        long targetTick = nowMillis / tickMillis;
+        List<K> expired = new ArrayList<>();
+
+        while (currentTick <= targetTick) {
+            if (cascadedTick < currentTick) {
+                cascade();
+                cascadedTick = currentTick;
+            }
+
+            Timer<K> head = wheels[0][(int) (currentTick & SLOT_MASK)];
+
+            while (head.next != head) {
+                if (expired.size() >= max) {
+                    return expired;
+                }
+
+                Timer<K> timer = head.next;
+                timer.unlink();
+
+                if (timer.deadlineTick > currentTick) {
+                    // was beyond the top level when placed
+                    add(timer);
+                } else {
+                    timers.remove(timer.key);
+                    expired.add(timer.key);
+                }
+            }
+
+            currentTick++;
+        }
+
+        return expired;
+    }
+
+    private long toTick(long millis) {
+        // rounded up, so a timer never expires before its deadline
+        return Math.floorDiv(millis + tickMillis - 1, tickMillis);
+    }
+
+    /**
+     * Moves the timers of the upper level slots the wheel turned onto down a level, as level 0 wraps around.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                return;
+            }
+
+            Timer<K> head = wheels[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+
+            while (head.next != head) {
+                Timer<K> timer = head.next;
+                timer.unlink();
+                add(timer);
+            }
+        }
+    }
+
+    private void add(Timer<K> timer) {
+        long ticks = timer.deadlineTick - currentTick;
+
+        if (ticks <= 0) {
+            timer.linkBefore(wheels[0][(int) (currentTick & SLOT_MASK)]);
+            return;
+        }
+
+        long placedTick = ticks < MAX_TICKS ? timer.deadlineTick : currentTick + MAX_TICKS - 1;
+        int level = 0;
+        while (ticks >= 1L << (SLOT_BITS * (level + 1)) && level < LEVELS - 1) {
+            level++;
+        }
+
+        timer.linkBefore(wheels[level][(int) ((placedTick >>> (SLOT_BITS * level)) & SLOT_MASK)]);
+    }
+
+    private static class Timer<K> {
+        private final K key;
+        private long deadlineTick;
+        private Timer<K> prev;
+        private Timer<K> next;
+
+        Timer(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+
+        void linkBefore(Timer<K> head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        void unlink() {
+            if (prev != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+    }
+}
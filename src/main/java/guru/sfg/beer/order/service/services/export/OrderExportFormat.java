@@ -0,0 +1,34 @@
+package guru.sfg.beer.order.service.services.export;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Output formats of the order export.
+ */
+public enum OrderExportFormat {
+    /**
+     * One JSON object per order, lines nested.
+     */
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+
+    /**
+     * One row per order line, order columns repeated.
+     */
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    OrderExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,178 @@
+package guru.sfg.beer.order.service.services.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.projections.OrderExportRow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Writes the orders of a period straight from a database cursor to an output stream. Only the current row
+ * is held in memory, so heap use does not grow with the size of the export.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderExportService {
+
+    static final String[] CSV_HEADER = {"orderId", "customerId", "customerRef", "orderStatus", "createdDate",
+            "lastModifiedDate", "lineId", "upc", "orderQuantity", "quantityAllocated"};
+
+    private final BeerOrderRepository beerOrderRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @return number of orders written
+     */
+    @Transactional(readOnly = true)
+    public long exportOrders(Timestamp from, Timestamp to, OrderExportFormat format, OutputStream out)
+            throws IOException {
+        try (Stream<OrderExportRow> rows = beerOrderRepository.streamExportRows(from, to)) {
+            long orders = format == OrderExportFormat.CSV
+                    ? writeCsv(rows.iterator(), out)
+                    : writeNdjson(rows.iterator(), out);
+
+            log.debug("Exported " + orders + " orders created from " + from + " to " + to + " as " + format);
+            return orders;
+        }
+    }
+
+    private long writeNdjson(Iterator<OrderExportRow> rows, OutputStream out) throws IOException {
+        long orders = 0;
+        UUID currentOrderId = null;
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            while (rows.hasNext()) {
+                OrderExportRow row = rows.next();
+
+                if (!row.getOrderId().equals(currentOrderId)) {
+                    if (currentOrderId != null) {
+                        endOrder(generator);
+                    }
+                    currentOrderId = row.getOrderId();
+                    orders++;
+
+                    generator.writeStartObject();
+                    generator.writeStringField("id", row.getOrderId().toString());
+                    writeStringField(generator, "customerId", row.getCustomerId());
+                    writeStringField(generator, "customerRef", row.getCustomerRef());
+                    writeStringField(generator, "orderStatus", row.getOrderStatus());
+                    writeStringField(generator, "createdDate", asString(row.getCreatedDate()));
+                    writeStringField(generator, "lastModifiedDate", asString(row.getLastModifiedDate()));
+                    generator.writeArrayFieldStart("beerOrderLines");
+                }
+
+                if (row.getLineId() != null) {
+                    generator.writeStartObject();
+                    generator.writeStringField("id", row.getLineId().toString());
+                    writeStringField(generator, "upc", row.getUpc());
+                    writeNumberField(generator, "orderQuantity", row.getOrderQuantity());
+                    writeNumberField(generator, "quantityAllocated", row.getQuantityAllocated());
+                    generator.writeEndObject();
+                }
+            }
+
+            if (currentOrderId != null) {
+                endOrder(generator);
+            }
+        }
+
+        return orders;
+    }
+
+    private static void endOrder(JsonGenerator generator) throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static void writeStringField(JsonGenerator generator, String name, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(name);
+        } else {
+            generator.writeStringField(name, value.toString());
+        }
+    }
+
+    private static void writeNumberField(JsonGenerator generator, String name, Integer value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(name);
+        } else {
+            generator.writeNumberField(name, value);
+        }
+    }
+
+    private long writeCsv(Iterator<OrderExportRow> rows, OutputStream out) throws IOException {
+        long orders = 0;
+        UUID currentOrderId = null;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", CSV_HEADER));
+        writer.write("\r\n");
+
+        while (rows.hasNext()) {
+            OrderExportRow row = rows.next();
+
+            if (!row.getOrderId().equals(currentOrderId)) {
+                currentOrderId = row.getOrderId();
+                orders++;
+            }
+
+            writeCsvValue(writer, row.getOrderId(), true);
+            writeCsvValue(writer, row.getCustomerId(), true);
+            writeCsvValue(writer, row.getCustomerRef(), true);
+            writeCsvValue(writer, row.getOrderStatus(), true);
+            writeCsvValue(writer, asString(row.getCreatedDate()), true);
+            writeCsvValue(writer, asString(row.getLastModifiedDate()), true);
+            writeCsvValue(writer, row.getLineId(), true);
+            writeCsvValue(writer, row.getUpc(), true);
+            writeCsvValue(writer, row.getOrderQuantity(), true);
+            writeCsvValue(writer, row.getQuantityAllocated(), false);
+            writer.write("\r\n");
+        }
+
+        // flush, but leave closing the response stream to the caller
+        writer.flush();
+        return orders;
+    }
+
+    private static void writeCsvValue(Writer writer, Object value, boolean separator) throws IOException {
+        if (value != null) {
+            String text = value.toString();
+
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0
+                    || text.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(text.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(text);
+            }
+        }
+
+        if (separator) {
+            writer.write(',');
+        }
+    }
+
+    private static String asString(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant().toString() : null;
+    }
+}
@@ -0,0 +1,115 @@
+package guru.sfg.beer.order.service.services.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.projections.PlacementKeyRef;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Answers "was an order already placed with this key" for order placement, mostly without a database
+ * round trip.
+ *
+ * Keys placed recently are held with their order id. Any other key is checked against a Bloom filter of all
+ * keys, and only keys the filter may contain are looked up. Until the filter has been loaded on startup
+ * every miss is looked up. Orders placed through another instance are not in this instance's filter; the
+ * unique index on (customer, placement key) catches those, and placement falls back to the lookup then.
+ */
+@Slf4j
+@Component
+public class PlacementKeyIndex {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final BeerOrderRepository beerOrderRepository;
+    private final BloomFilter bloomFilter;
+    private final Cache<String, UUID> recentKeys;
+    private volatile boolean loaded;
+
+    private final Counter recentHits;
+    private final Counter filteredNew;
+    private final Counter lookupHits;
+    private final Counter lookupMisses;
+
+    public PlacementKeyIndex(BeerOrderRepository beerOrderRepository, BeerOrderMetrics beerOrderMetrics,
+                             @Value("${sfg.order.idempotency.expected-keys:1000000}") long expectedKeys,
+                             @Value("${sfg.order.idempotency.false-positive-probability:0.01}") double fpp,
+                             @Value("${sfg.order.idempotency.recent-keys:100000}") long recentKeys) {
+        this.beerOrderRepository = beerOrderRepository;
+        this.bloomFilter = new BloomFilter(expectedKeys, fpp);
+        this.recentKeys = Caffeine.newBuilder()
+                .maximumSize(recentKeys)
+                .build();
+
+        this.recentHits = beerOrderMetrics.placementKeyChecks("recent");
+        this.filteredNew = beerOrderMetrics.placementKeyChecks("filtered_new");
+        this.lookupHits = beerOrderMetrics.placementKeyChecks("lookup_hit");
+        this.lookupMisses = beerOrderMetrics.placementKeyChecks("lookup_miss");
+    }
+
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        AtomicLong keys = new AtomicLong();
+
+        try (Stream<PlacementKeyRef> placementKeys = beerOrderRepository.streamPlacementKeys()) {
+            placementKeys.forEach(ref -> {
+                bloomFilter.put(key(ref.getCustomerId(), ref.getPlacementKey()));
+                keys.incrementAndGet();
+            });
+        }
+
+        loaded = true;
+        log.debug("Loaded " + keys.get() + " order placement keys");
+    }
+
+    /**
+     * Id of the order placed by the customer with the key, if any.
+     */
+    public Optional<UUID> findExisting(UUID customerId, String placementKey) {
+        String key = key(customerId, placementKey);
+
+        UUID orderId = recentKeys.getIfPresent(key);
+        if (orderId != null) {
+            recentHits.increment();
+            return Optional.of(orderId);
+        }
+
+        if (loaded && !bloomFilter.mightContain(key)) {
+            filteredNew.increment();
+            return Optional.empty();
+        }
+
+        Optional<UUID> existing = beerOrderRepository.findIdByCustomerIdAndPlacementKey(customerId, placementKey);
+        (existing.isPresent() ? lookupHits : lookupMisses).increment();
+
+        existing.ifPresent(id -> recentKeys.put(key, id));
+        return existing;
+    }
+
+    /**
+     * Call once the order placed with the key is committed.
+     */
+    public void record(UUID customerId, String placementKey, UUID orderId) {
+        String key = key(customerId, placementKey);
+
+        bloomFilter.put(key);
+        recentKeys.put(key, orderId);
+    }
+
+    private static String key(UUID customerId, String placementKey) {
+        return customerId + ":" + placementKey;
+    }
+}
@@ -0,0 +1,109 @@
+package guru.sfg.beer.order.service.services.inventory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Orders waiting on inventory, indexed by the UPC they are short of, with the quantity still outstanding.
+ *
+ * Per UPC the orders are kept oldest first, so re-allocation for a replenished UPC touches only the orders
+ * short of it, in the order they were placed. Thread safe.
+ */
+public class PendingInventoryIndex {
+
+    private static final Comparator<PendingOrder> PLACEMENT_ORDER =
+            Comparator.comparingLong(PendingOrder::getPlacedAt).thenComparing(PendingOrder::getOrderId);
+
+    private final Map<String, TreeMap<PendingOrder, Integer>> ordersByUpc = new HashMap<>();
+    private final Map<UUID, Map<String, Integer>> upcsByOrder = new HashMap<>();
+    private final Map<UUID, Long> placedAtByOrder = new HashMap<>();
+
+    /**
+     * Adds an outstanding quantity of the order, replacing what was held for the order and UPC.
+     */
+    public synchronized void put(UUID orderId, long placedAt, String upc, int outstanding) {
+        PendingOrder pendingOrder = new PendingOrder(orderId, placedAt);
+
+        ordersByUpc.computeIfAbsent(upc, key -> new TreeMap<>(PLACEMENT_ORDER)).put(pendingOrder, outstanding);
+        upcsByOrder.computeIfAbsent(orderId, key -> new HashMap<>()).put(upc, outstanding);
+        placedAtByOrder.put(orderId, placedAt);
+    }
+
+    public synchronized void remove(UUID orderId) {
+        Map<String, Integer> upcs = upcsByOrder.remove(orderId);
+        Long placedAt = placedAtByOrder.remove(orderId);
+
+        if (upcs == null) {
+            return;
+        }
+
+        PendingOrder pendingOrder = new PendingOrder(orderId, placedAt);
+        upcs.keySet().forEach(upc -> {
+            TreeMap<PendingOrder, Integer> orders = ordersByUpc.get(upc);
+            orders.remove(pendingOrder);
+            if (orders.isEmpty()) {
+                ordersByUpc.remove(upc);
+            }
+        });
+    }
+
+    /**
+     * Oldest orders short of the UPC whose outstanding quantities fit in {@code available} together, at most
+     * {@code max}. Selection stops at the first order that does not fit, so a large order is not passed over
+     * by later small ones; the oldest order is always selected. With {@code available} null every order
+     * counts as fitting. Orders stay in the index until they leave the pending status.
+     */
+    public synchronized List<UUID> oldestFitting(String upc, Integer available, int max) {
+        TreeMap<PendingOrder, Integer> orders = ordersByUpc.get(upc);
+
+        if (orders == null || max < 1) {
+            return Collections.emptyList();
+        }
+
+        List<UUID> selected = new ArrayList<>(Math.min(max, orders.size()));
+        long remaining = available != null ? available : Long.MAX_VALUE;
+
+        for (Map.Entry<PendingOrder, Integer> entry : orders.entrySet()) {
+            if (selected.size() >= max || (!selected.isEmpty() && entry.getValue() > remaining)) {
+                break;
+            }
+
+            selected.add(entry.getKey().getOrderId());
+            remaining -= entry.getValue();
+        }
+
+        return selected;
+    }
+
+    public synchronized List<String> upcs() {
+        return new ArrayList<>(ordersByUpc.keySet());
+    }
+
+    public synchronized int orderCount() {
+        return upcsByOrder.size();
+    }
+
+    private static class PendingOrder {
+        private final UUID orderId;
+        private final long placedAt;
+
+        PendingOrder(UUID orderId, long placedAt) {
+            this.orderId = orderId;
+            this.placedAt = placedAt;
+        }
+
+        UUID getOrderId() {
+            return orderId;
+        }
+
+        long getPlacedAt() {
+            return placedAt;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package guru.sfg.beer.order.service.services.inventory;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.repositories.BeerOrderLineRepository;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.projections.PendingLineRef;
+import guru.sfg.beer.order.service.services.BeerOrderManager;
+import guru.sfg.beer.order.service.services.scheduling.SchedulerLeases;
+import guru.sfg.beer.order.service.sm.BeerOrderStatusChangedEvent;
+import guru.sfg.brewery.model.events.InventoryReplenishedEvent;
+import io.micrometer.core.instrument.Gauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Sends orders waiting on inventory to allocation again once there may be stock for them.
+ *
+ * The orders are held in a {@link PendingInventoryIndex}, filled once on startup and kept up to date from
+ * status changes, so a replenishment only touches the orders short of the replenished UPC and nothing
+ * rescans the pending orders. On a replenishment the oldest orders whose outstanding quantities fit the
+ * stock on hand are re-allocated in one batch. As a fallback for missed notifications, a scheduled pass
+ * re-allocates the oldest order of each UPC.
+ *
+ * Each instance indexes the orders it saw go pending; an order taken by a change on another instance is
+ * skipped and dropped from the index once it is found no longer pending. The scheduled pass only runs on the
+ * instance holding the re-allocation lease, so orders are not sent to allocation by every instance at once;
+ * before each pass it indexes the orders that went pending on other instances since the previous one.
+ */
+@Slf4j
+@Service
+public class ReallocationService {
+
+    static final String REPLENISHED = "replenished";
+    static final String SCHEDULED = "scheduled";
+    static final String LEASE_NAME = "pending-inventory-reallocation";
+
+    private final BeerOrderRepository beerOrderRepository;
+    private final BeerOrderLineRepository beerOrderLineRepository;
+    private final BeerOrderManager beerOrderManager;
+    private final BeerOrderMetrics beerOrderMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLeases schedulerLeases;
+    private final int batchSize;
+    private final long intervalMillis;
+    private final Duration leaseDuration;
+    private final PendingInventoryIndex pendingInventoryIndex = new PendingInventoryIndex();
+
+    // start of the last load, only touched on startup and by the scheduled pass
+    private volatile long loadedAt;
+
+    public ReallocationService(BeerOrderRepository beerOrderRepository,
+                               BeerOrderLineRepository beerOrderLineRepository, BeerOrderManager beerOrderManager,
+                               BeerOrderMetrics beerOrderMetrics, TransactionTemplate transactionTemplate,
+                               SchedulerLeases schedulerLeases,
+                               @Value("${sfg.order.reallocation.batch-size:50}") int batchSize,
+                               @Value("${sfg.order.reallocation.interval-ms:300000}") long intervalMillis,
+                               @Value("${sfg.order.reallocation.lease:10m}") Duration leaseDuration) {
+        this.beerOrderRepository = beerOrderRepository;
+        this.beerOrderLineRepository = beerOrderLineRepository;
+        this.beerOrderManager = beerOrderManager;
+        this.beerOrderMetrics = beerOrderMetrics;
+        this.transactionTemplate = transactionTemplate;
+        this.schedulerLeases = schedulerLeases;
+        this.batchSize = batchSize;
+        this.intervalMillis = intervalMillis;
+        this.leaseDuration = leaseDuration;
+
+        Gauge.builder(BeerOrderMetrics.PREFIX + ".pending.inventory.orders", pendingInventoryIndex,
+                PendingInventoryIndex::orderCount)
+                .description("Orders waiting on inventory held in the re-allocation index")
+                .register(beerOrderMetrics.getMeterRegistry());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        load(new Timestamp(0));
+    }
+
+    /**
+     * Indexes the orders that went pending since the given time, replacing what was held for them.
+     */
+    private void load(Timestamp since) {
+        loadedAt = System.currentTimeMillis();
+        Map<UUID, List<PendingLineRef>> linesByOrder = new HashMap<>();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<PendingLineRef> pendingLines = beerOrderLineRepository.streamPendingLines(
+                    BeerOrderStatusEnum.PENDING_INVENTORY, since)) {
+                pendingLines.forEach(line ->
+                        linesByOrder.computeIfAbsent(line.getOrderId(), id -> new ArrayList<>()).add(line));
+            }
+        });
+
+        linesByOrder.forEach((orderId, lines) -> {
+            pendingInventoryIndex.remove(orderId);
+            lines.forEach(this::index);
+        });
+
+        log.debug("Loaded " + linesByOrder.size() + " orders waiting on inventory since " + since);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(BeerOrderStatusChangedEvent event) {
+        if (event.getStatus() == BeerOrderStatusEnum.PENDING_INVENTORY) {
+            // the allocated quantities are committed with the status, so the short lines are current
+            pendingInventoryIndex.remove(event.getOrderId());
+            beerOrderLineRepository.findPendingLines(event.getOrderId()).forEach(this::index);
+        } else if (event.getPreviousStatus() == BeerOrderStatusEnum.PENDING_INVENTORY) {
+            pendingInventoryIndex.remove(event.getOrderId());
+        }
+    }
+
+    public void onReplenished(InventoryReplenishedEvent event) {
+        List<UUID> orderIds = pendingInventoryIndex.oldestFitting(event.getUpc(), event.getQuantityOnHand(),
+                batchSize);
+
+        if (!orderIds.isEmpty()) {
+            log.debug("Re-allocating " + orderIds.size() + " orders for replenished upc " + event.getUpc());
+            reallocate(orderIds, REPLENISHED);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sfg.order.reallocation.interval-ms:300000}")
+    public void reallocateOldest() {
+        if (!schedulerLeases.tryAcquire(LEASE_NAME, leaseDuration)) {
+            log.debug("Scheduled re-allocation skipped, the lease is held by another instance");
+            return;
+        }
+
+        // one interval back, to cover changes committed late
+        load(new Timestamp(Math.max(0, loadedAt - intervalMillis)));
+
+        Set<UUID> oldest = new LinkedHashSet<>();
+        pendingInventoryIndex.upcs().forEach(upc -> oldest.addAll(pendingInventoryIndex.oldestFitting(upc, null, 1)));
+
+        List<UUID> orderIds = new ArrayList<>(oldest);
+        for (int from = 0; from < orderIds.size(); from += batchSize) {
+            reallocate(orderIds.subList(from, Math.min(from + batchSize, orderIds.size())), SCHEDULED);
+        }
+    }
+
+    /**
+     * One transaction per batch. Serialized, so a notification and the scheduled pass never send the same
+     * order twice.
+     */
+    private synchronized void reallocate(List<UUID> orderIds, String trigger) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<BeerOrder> beerOrders = new ArrayList<>(beerOrderRepository.findAllWithLinesByIdIn(orderIds));
+            beerOrders.sort(Comparator.comparing(BeerOrder::getCreatedDate).thenComparing(BeerOrder::getId));
+
+            for (BeerOrder beerOrder : beerOrders) {
+                if (beerOrder.getOrderStatus() != BeerOrderStatusEnum.PENDING_INVENTORY) {
+                    // moved on through another instance
+                    pendingInventoryIndex.remove(beerOrder.getId());
+                    continue;
+                }
+
+                beerOrderManager.reallocateOrder(beerOrder);
+                beerOrderMetrics.reallocations(trigger).increment();
+            }
+        });
+    }
+
+    private void index(PendingLineRef line) {
+        pendingInventoryIndex.put(line.getOrderId(), line.getCreatedDate().getTime(), line.getUpc(),
+                line.getOutstanding());
+    }
+}
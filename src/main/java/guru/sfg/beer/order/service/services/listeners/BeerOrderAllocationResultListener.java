@@ -2,12 +2,19 @@ package guru.sfg.beer.order.service.services.listeners;
 
 import guru.sfg.beer.order.service.config.JmsConfig;
 import guru.sfg.beer.order.service.services.BeerOrderManager;
+import guru.sfg.beer.order.service.services.messaging.MessageDeduplicator;
+import guru.sfg.beer.order.service.services.scheduling.OrderLane;
+import guru.sfg.beer.order.service.services.scheduling.OrderWorkScheduler;
+import guru.sfg.beer.order.service.tracing.OrderLifecycleTracker;
 import guru.sfg.brewery.model.events.AllocateOrderResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jms.annotation.JmsListener;
+import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+
 /**
  * Created by jt on 12/3/19.
  */
@@ -16,9 +23,21 @@ import org.springframework.stereotype.Component;
 @Component
 public class BeerOrderAllocationResultListener {
     private final BeerOrderManager beerOrderManager;
+    private final OrderLifecycleTracker orderLifecycleTracker;
+    private final OrderWorkScheduler orderWorkScheduler;
+    private final MessageDeduplicator messageDeduplicator;
+
+    @JmsListener(id = JmsConfig.ALLOCATE_ORDER_RESPONSE_LISTENER, destination = JmsConfig.ALLOCATE_ORDER_RESPONSE_QUEUE,
+            containerFactory = JmsConfig.RESULT_LISTENER_FACTORY)
+    public void listen(AllocateOrderResult result, @Headers Map<String, Object> headers){
+        messageDeduplicator.handleOnce(JmsConfig.ALLOCATE_ORDER_RESPONSE_QUEUE, headers, work ->
+                orderWorkScheduler.run(OrderLane.BULK, () ->
+                        orderLifecycleTracker.handle(JmsConfig.ALLOCATE_ORDER_RESPONSE_QUEUE,
+                                result.getBeerOrderDto().getId(), headers, work)),
+                () -> processResult(result));
+    }
 
-    @JmsListener(destination = JmsConfig.ALLOCATE_ORDER_RESPONSE_QUEUE)
-    public void listen(AllocateOrderResult result){
+    private void processResult(AllocateOrderResult result){
         if(!result.getAllocationError() && !result.getPendingInventory()){
             //allocated normally
             beerOrderManager.beerOrderAllocationPassed(result.getBeerOrderDto());
@@ -0,0 +1,24 @@
+package guru.sfg.beer.order.service.services.listeners;
+
+import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.beer.order.service.services.inventory.ReallocationService;
+import guru.sfg.brewery.model.events.InventoryReplenishedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class InventoryReplenishedListener {
+
+    private final ReallocationService reallocationService;
+
+    @JmsListener(destination = JmsConfig.INVENTORY_REPLENISHED_QUEUE)
+    public void listen(InventoryReplenishedEvent event) {
+        log.debug("Inventory replenished for upc: " + event.getUpc());
+
+        reallocationService.onReplenished(event);
+    }
+}
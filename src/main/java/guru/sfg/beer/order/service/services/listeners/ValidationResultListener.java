@@ -2,12 +2,18 @@ package guru.sfg.beer.order.service.services.listeners;
 
 import guru.sfg.beer.order.service.config.JmsConfig;
 import guru.sfg.beer.order.service.services.BeerOrderManager;
+import guru.sfg.beer.order.service.services.messaging.MessageDeduplicator;
+import guru.sfg.beer.order.service.services.scheduling.OrderLane;
+import guru.sfg.beer.order.service.services.scheduling.OrderWorkScheduler;
+import guru.sfg.beer.order.service.tracing.OrderLifecycleTracker;
 import guru.sfg.brewery.model.events.ValidateOrderResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jms.annotation.JmsListener;
+import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -19,13 +25,21 @@ import java.util.UUID;
 public class ValidationResultListener {
 
     private final BeerOrderManager beerOrderManager;
+    private final OrderLifecycleTracker orderLifecycleTracker;
+    private final OrderWorkScheduler orderWorkScheduler;
+    private final MessageDeduplicator messageDeduplicator;
 
-    @JmsListener(destination = JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE)
-    public void listen(ValidateOrderResult result){
+    @JmsListener(id = JmsConfig.VALIDATE_ORDER_RESPONSE_LISTENER, destination = JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE,
+            containerFactory = JmsConfig.RESULT_LISTENER_FACTORY)
+    public void listen(ValidateOrderResult result, @Headers Map<String, Object> headers){
         final UUID beerOrderId = result.getOrderId();
 
         log.debug("Validation Result for Order Id: " + beerOrderId);
 
-        beerOrderManager.processValidationResult(beerOrderId, result.getIsValid());
+        messageDeduplicator.handleOnce(JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE, headers, work ->
+                orderWorkScheduler.run(OrderLane.BULK, () ->
+                        orderLifecycleTracker.handle(JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE, beerOrderId, headers,
+                                work)),
+                () -> beerOrderManager.processValidationResult(beerOrderId, result.getIsValid()));
     }
 }
@@ -0,0 +1,123 @@
+package guru.sfg.beer.order.service.services.messaging;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import guru.sfg.beer.order.service.domain.ProcessedMessage;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.repositories.ProcessedMessageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jms.support.JmsHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Drops redeliveries of result messages that were already handled, before the order is loaded.
+ *
+ * Messages are keyed on their JMS message id. Ids handled recently are held in memory, and every handled id
+ * is also recorded in the database so a redelivery after a restart is still recognised. The database is
+ * only asked about messages the broker marks as redelivered, so a first delivery costs no extra read.
+ *
+ * The id is recorded in the same transaction as the handler's changes, inserted before the handler runs:
+ * a message is recorded exactly when its result is committed, and a concurrent delivery of the same message
+ * waits on the key and is then dropped.
+ */
+@Slf4j
+@Component
+public class MessageDeduplicator {
+
+    static final String MEMORY = "memory";
+    static final String STORE = "store";
+
+    private final ProcessedMessageRepository processedMessageRepository;
+    private final BeerOrderMetrics beerOrderMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, Boolean> recentMessages;
+    private final Duration retention;
+
+    public MessageDeduplicator(ProcessedMessageRepository processedMessageRepository,
+                               BeerOrderMetrics beerOrderMetrics, TransactionTemplate transactionTemplate,
+                               @Value("${sfg.order.dedupe.recent-messages:100000}") long recentMessages,
+                               @Value("${sfg.order.dedupe.retention:7d}") Duration retention) {
+        this.processedMessageRepository = processedMessageRepository;
+        this.beerOrderMetrics = beerOrderMetrics;
+        this.transactionTemplate = transactionTemplate;
+        this.recentMessages = Caffeine.newBuilder()
+                .maximumSize(recentMessages)
+                .build();
+        this.retention = retention;
+    }
+
+    /**
+     * Runs the handler in a transaction unless the message was handled before. The transactional work is
+     * passed to {@code runner}, which decides where it runs, so a transaction is only open while the handler
+     * can make progress. Messages without an id are always handled.
+     */
+    public void handleOnce(String queue, Map<String, Object> headers, Consumer<Runnable> runner, Runnable handler) {
+        Object id = headers.get(JmsHeaders.MESSAGE_ID);
+        if (id == null) {
+            runner.accept(() -> transactionTemplate.executeWithoutResult(status -> handler.run()));
+            return;
+        }
+
+        String messageId = id.toString();
+
+        if (recentMessages.getIfPresent(messageId) != null) {
+            dropped(queue, messageId, MEMORY);
+            return;
+        }
+
+        if (Boolean.TRUE.equals(headers.get(JmsHeaders.REDELIVERED))
+                && processedMessageRepository.existsById(messageId)) {
+            recentMessages.put(messageId, Boolean.TRUE);
+            dropped(queue, messageId, STORE);
+            return;
+        }
+
+        AtomicBoolean recorded = new AtomicBoolean();
+
+        runner.accept(() -> transactionTemplate.executeWithoutResult(status -> {
+            try {
+                processedMessageRepository.saveAndFlush(new ProcessedMessage(messageId, queue));
+            } catch (DataIntegrityViolationException e) {
+                // handled concurrently by another consumer, which committed it first
+                status.setRollbackOnly();
+                return;
+            }
+
+            handler.run();
+            recorded.set(true);
+        }));
+
+        recentMessages.put(messageId, Boolean.TRUE);
+
+        if (!recorded.get()) {
+            dropped(queue, messageId, STORE);
+        }
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${sfg.order.dedupe.purge-interval-ms:3600000}")
+    public void purge() {
+        int purged = processedMessageRepository.deleteProcessedBefore(
+                new Timestamp(System.currentTimeMillis() - retention.toMillis()));
+
+        if (purged > 0) {
+            log.debug("Purged " + purged + " processed message records");
+        }
+    }
+
+    private void dropped(String queue, String messageId, String source) {
+        beerOrderMetrics.jmsDuplicates(queue, source).increment();
+        log.info("Dropped duplicate delivery of message " + messageId + " on " + queue);
+    }
+}
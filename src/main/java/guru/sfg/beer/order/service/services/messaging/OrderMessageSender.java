@@ -0,0 +1,43 @@
+package guru.sfg.beer.order.service.services.messaging;
+
+import guru.sfg.beer.order.service.jfr.JmsSendEvent;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.tracing.OrderLifecycleTracker;
+import guru.sfg.beer.order.service.tracing.OrderTraceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Sends order saga messages. Every message carries the order's trace context so result listeners can
+ * restore it, and is grouped by order id so the broker delivers one order's messages to a single consumer.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderMessageSender {
+    public static final String GROUP_ID_PROPERTY = "JMSXGroupID";
+
+    private final JmsTemplate jmsTemplate;
+    private final BeerOrderMetrics beerOrderMetrics;
+    private final OrderLifecycleTracker orderLifecycleTracker;
+
+    public void send(String queue, UUID orderId, Object payload) {
+        OrderTraceContext traceContext = OrderTraceContext.current(orderId)
+                .orElseGet(() -> OrderTraceContext.newTrace(orderId,
+                        orderLifecycleTracker.placedAt(orderId).orElse(System.currentTimeMillis())));
+
+        JmsSendEvent sendEvent = JmsSendEvent.start();
+
+        beerOrderMetrics.jmsSendTimer(queue).record(() -> jmsTemplate.convertAndSend(queue, payload, message -> {
+            traceContext.writeTo(message);
+            message.setStringProperty(GROUP_ID_PROPERTY, orderId.toString());
+            return message;
+        }));
+
+        sendEvent.finish(queue, orderId);
+    }
+}
@@ -0,0 +1,229 @@
+package guru.sfg.beer.order.service.services.recovery;
+
+import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.ratelimit.TokenBucket;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.projections.StuckOrderRef;
+import guru.sfg.beer.order.service.services.BeerOrderManager;
+import guru.sfg.beer.order.service.services.messaging.OrderMessageSender;
+import guru.sfg.beer.order.service.services.scheduling.FairOrderDispatcher;
+import guru.sfg.beer.order.service.services.scheduling.SchedulerLeases;
+import guru.sfg.beer.order.service.web.mappers.BeerOrderMapper;
+import guru.sfg.brewery.model.events.AllocateOrderRequest;
+import guru.sfg.brewery.model.events.ValidateOrderRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Re-sends the validation or allocation request of orders whose result never arrived, and queues again
+ * NEW orders that were never sent to validation, as when the instance holding them in its fair queue stopped.
+ *
+ * Orders that have sat in NEW, VALIDATION_PENDING or ALLOCATION_PENDING for longer than the stuck-after period
+ * are found with keyset scans of the (status, lastModifiedDate) index and re-driven in batches, one
+ * transaction per batch. Re-driving an order touches it, so it is not picked up again until another full
+ * period has passed. A pending order that has used up its attempts is failed into the matching exception
+ * status; a NEW order is queued again however often it was before.
+ *
+ * Only the instance holding the sweeper lease sweeps. Re-sends are paced by a token bucket and capped per
+ * sweep, so recovering from a long outage does not flood the broker. A sweep ends once the bucket is empty,
+ * and the next one carries on from the oldest orders left.
+ */
+@Slf4j
+@Component
+public class StuckOrderSweeper {
+
+    static final String LEASE_NAME = "stuck-order-sweeper";
+    static final String REDRIVEN = "redriven";
+    static final String FAILED = "failed";
+
+    private static final BeerOrderStatusEnum[] SWEPT_STATUSES = {
+            BeerOrderStatusEnum.NEW, BeerOrderStatusEnum.VALIDATION_PENDING, BeerOrderStatusEnum.ALLOCATION_PENDING};
+
+    private final BeerOrderRepository beerOrderRepository;
+    private final BeerOrderManager beerOrderManager;
+    private final BeerOrderMapper beerOrderMapper;
+    private final OrderMessageSender orderMessageSender;
+    private final SchedulerLeases schedulerLeases;
+    private final FairOrderDispatcher fairOrderDispatcher;
+    private final BeerOrderMetrics beerOrderMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration stuckAfter;
+    private final Duration leaseDuration;
+    private final int maxAttempts;
+    private final int batchSize;
+    private final int maxPerSweep;
+    private final TokenBucket redriveRate;
+
+    public StuckOrderSweeper(BeerOrderRepository beerOrderRepository, BeerOrderManager beerOrderManager,
+                             BeerOrderMapper beerOrderMapper, OrderMessageSender orderMessageSender,
+                             SchedulerLeases schedulerLeases, FairOrderDispatcher fairOrderDispatcher,
+                             BeerOrderMetrics beerOrderMetrics,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${sfg.order.sweeper.stuck-after:5m}") Duration stuckAfter,
+                             @Value("${sfg.order.sweeper.lease:5m}") Duration leaseDuration,
+                             @Value("${sfg.order.sweeper.max-attempts:3}") int maxAttempts,
+                             @Value("${sfg.order.sweeper.batch-size:100}") int batchSize,
+                             @Value("${sfg.order.sweeper.max-per-sweep:1000}") int maxPerSweep,
+                             @Value("${sfg.order.sweeper.redrives-per-second:20}") double redrivesPerSecond) {
+        this.beerOrderRepository = beerOrderRepository;
+        this.beerOrderManager = beerOrderManager;
+        this.beerOrderMapper = beerOrderMapper;
+        this.orderMessageSender = orderMessageSender;
+        this.schedulerLeases = schedulerLeases;
+        this.fairOrderDispatcher = fairOrderDispatcher;
+        this.beerOrderMetrics = beerOrderMetrics;
+        this.transactionTemplate = transactionTemplate;
+        this.stuckAfter = stuckAfter;
+        this.leaseDuration = leaseDuration;
+        this.maxAttempts = maxAttempts;
+        this.batchSize = batchSize;
+        this.maxPerSweep = maxPerSweep;
+        this.redriveRate = new TokenBucket(redrivesPerSecond, batchSize, System.nanoTime());
+    }
+
+    @Scheduled(fixedDelayString = "${sfg.order.sweeper.interval-ms:5000}")
+    public void sweep() {
+        if (!schedulerLeases.tryAcquire(LEASE_NAME, leaseDuration)) {
+            log.debug("Stuck order sweep skipped, the lease is held by another instance");
+            return;
+        }
+
+        Timestamp stuckBefore = new Timestamp(System.currentTimeMillis() - stuckAfter.toMillis());
+        int swept = 0;
+
+        for (BeerOrderStatusEnum status : SWEPT_STATUSES) {
+            if (swept >= maxPerSweep) {
+                break;
+            }
+            swept += sweep(status, stuckBefore, maxPerSweep - swept);
+        }
+
+        if (swept > 0) {
+            log.info("Swept " + swept + " stuck orders");
+        }
+    }
+
+    private int sweep(BeerOrderStatusEnum status, Timestamp stuckBefore, int budget) {
+        Timestamp after = new Timestamp(0);
+        UUID afterId = new UUID(0, 0);
+        int swept = 0;
+
+        while (swept < budget) {
+            int limit = takePermits(Math.min(batchSize, budget - swept));
+
+            if (limit == 0) {
+                // out of re-send permits, the rest waits for the next sweep
+                break;
+            }
+
+            List<StuckOrderRef> stuckOrders = beerOrderRepository.findStuckOrders(status, stuckBefore, after, afterId,
+                    PageRequest.of(0, limit));
+
+            if (stuckOrders.isEmpty()) {
+                break;
+            }
+
+            StuckOrderRef last = stuckOrders.get(stuckOrders.size() - 1);
+            after = last.getLastModifiedDate();
+            afterId = last.getId();
+
+            List<UUID> ids = new ArrayList<>(stuckOrders.size());
+            stuckOrders.forEach(stuckOrder -> ids.add(stuckOrder.getId()));
+
+            List<BeerOrder> newOrders = transactionTemplate.execute(tx -> redrive(status, ids));
+            // queued once committed, so the dispatch sees the re-drive attempt
+            newOrders.forEach(beerOrder -> fairOrderDispatcher.enqueue(beerOrder.getId(),
+                    beerOrder.getCustomer() != null ? beerOrder.getCustomer().getId() : null));
+            swept += ids.size();
+
+            // renewed per batch, so a long sweep keeps the lease, and stops if it was lost meanwhile
+            if (stuckOrders.size() < limit || !schedulerLeases.tryAcquire(LEASE_NAME, leaseDuration)) {
+                break;
+            }
+        }
+
+        return swept;
+    }
+
+    /**
+     * @return the NEW orders to queue for validation again
+     */
+    private List<BeerOrder> redrive(BeerOrderStatusEnum status, List<UUID> ids) {
+        List<BeerOrder> newOrders = new ArrayList<>();
+
+        for (BeerOrder beerOrder : beerOrderRepository.findAllWithLinesByIdIn(ids)) {
+            if (beerOrder.getOrderStatus() != status) {
+                // the result arrived since the scan
+                continue;
+            }
+
+            int attempts = beerOrder.getRedriveAttempts() != null ? beerOrder.getRedriveAttempts() : 0;
+
+            if (status == BeerOrderStatusEnum.NEW) {
+                // lost with the queue of the instance that accepted it. Dispatch only validates orders still
+                // NEW, so it is queued again however often it was before
+                beerOrder.setRedriveAttempts(attempts + 1);
+                newOrders.add(beerOrder);
+                beerOrderMetrics.stuckOrderRedrives(status, REDRIVEN).increment();
+                continue;
+            }
+
+            if (attempts >= maxAttempts) {
+                log.warn("Order " + beerOrder.getId() + " still " + status + " after " + attempts
+                        + " re-sends, failing it");
+                beerOrderManager.failStuckOrder(beerOrder);
+                beerOrderMetrics.stuckOrderRedrives(status, FAILED).increment();
+                continue;
+            }
+
+            // also touches lastModifiedDate, which keeps the order out of the next sweeps for a full period
+            beerOrder.setRedriveAttempts(attempts + 1);
+            resend(beerOrder);
+            beerOrderMetrics.stuckOrderRedrives(status, REDRIVEN).increment();
+        }
+
+        return newOrders;
+    }
+
+    private void resend(BeerOrder beerOrder) {
+        if (beerOrder.getOrderStatus() == BeerOrderStatusEnum.VALIDATION_PENDING) {
+            orderMessageSender.send(JmsConfig.VALIDATE_ORDER_QUEUE, beerOrder.getId(), ValidateOrderRequest.builder()
+                    .beerOrder(beerOrderMapper.beerOrderToDto(beerOrder))
+                    .build());
+        } else {
+            orderMessageSender.send(JmsConfig.ALLOCATE_ORDER_QUEUE, beerOrder.getId(), AllocateOrderRequest.builder()
+                    .beerOrderDto(beerOrderMapper.beerOrderToDto(beerOrder))
+                    .build());
+        }
+
+        log.debug("Re-sent " + beerOrder.getOrderStatus() + " request for order id: " + beerOrder.getId());
+    }
+
+    /**
+     * Takes up to the wanted number of re-send permits without waiting for more to accrue, so the sweep
+     * never holds a scheduler thread.
+     */
+    private int takePermits(int wanted) {
+        long now = System.nanoTime();
+        int taken = 0;
+
+        while (taken < wanted && redriveRate.tryConsume(now).isAllowed()) {
+            taken++;
+        }
+
+        return taken;
+    }
+}
@@ -0,0 +1,256 @@
+package guru.sfg.beer.order.service.services.scheduling;
+
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.metrics.OrderStatusGauges;
+import guru.sfg.beer.order.service.services.BeerOrderManager;
+import guru.sfg.beer.order.service.sm.BeerOrderStatusChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Deficit round robin queue between order acceptance and validation.
+ *
+ * Newly placed orders are queued per customer. Whenever the validation and allocation stages have room
+ * (fewer than {@code max-dispatched} orders in them) the dispatcher visits the customers in turn and
+ * sends each of them up to its weight in orders to validation, so a burst from one customer cannot
+ * starve everyone else. The queue is held in memory only; orders left NEW by a stopped instance are
+ * queued again by the stuck order sweeper.
+ */
+@Slf4j
+@Component
+public class FairOrderDispatcher {
+    private static final UUID NO_CUSTOMER = new UUID(0, 0);
+    static final String OTHER_CUSTOMERS = "other";
+    private static final long CAPACITY_RECHECK_MS = 100;
+
+    private final BeerOrderManager beerOrderManager;
+    private final OrderStatusGauges orderStatusGauges;
+    private final FairQueueProperties fairQueueProperties;
+    private final BeerOrderMetrics beerOrderMetrics;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<UUID, CustomerQueue> customerQueues = new HashMap<>();
+    private final Deque<CustomerQueue> activeQueues = new ArrayDeque<>();
+    private final Set<UUID> queuedOrderIds = new HashSet<>();
+    private final AtomicInteger dispatching = new AtomicInteger();
+
+    private ExecutorService executor;
+    private Thread dispatcherThread;
+    private volatile boolean running;
+
+    public FairOrderDispatcher(BeerOrderManager beerOrderManager, OrderStatusGauges orderStatusGauges,
+                               FairQueueProperties fairQueueProperties,
+                               BeerOrderMetrics beerOrderMetrics) {
+        this.beerOrderManager = beerOrderManager;
+        this.orderStatusGauges = orderStatusGauges;
+        this.fairQueueProperties = fairQueueProperties;
+        this.beerOrderMetrics = beerOrderMetrics;
+
+        Gauge.builder(BeerOrderMetrics.PREFIX + ".fair.queue.size", this, FairOrderDispatcher::queued)
+                .description("Orders waiting in the fair queue for validation")
+                .register(beerOrderMetrics.getMeterRegistry());
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        executor = Executors.newFixedThreadPool(fairQueueProperties.getDispatchThreads(),
+                new CustomizableThreadFactory("order-dispatch-"));
+
+        dispatcherThread = new Thread(this::dispatchLoop, "order-fair-queue");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        dispatcherThread.interrupt();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(BeerOrderStatusChangedEvent event) {
+        if (event.getPreviousStatus() == null && event.getStatus() == BeerOrderStatusEnum.NEW) {
+            enqueue(event.getOrderId(), event.getCustomerId());
+        } else {
+            signal();
+        }
+    }
+
+    public void enqueue(UUID orderId, UUID customerId) {
+        UUID key = customerId != null ? customerId : NO_CUSTOMER;
+
+        lock.lock();
+        try {
+            if (!queuedOrderIds.add(orderId)) {
+                return;
+            }
+
+            CustomerQueue customerQueue = customerQueues.computeIfAbsent(key,
+                    id -> new CustomerQueue(id, fairQueueProperties.weightFor(id), delayTag(id)));
+            customerQueue.orders.addLast(new QueuedOrder(orderId, System.nanoTime()));
+
+            if (!customerQueue.active) {
+                customerQueue.active = true;
+                activeQueues.addLast(customerQueue);
+            }
+
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return queuedOrderIds.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                UUID orderId = takeNext();
+                executor.execute(() -> dispatch(orderId));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Fair queue dispatch failed", e);
+            }
+        }
+    }
+
+    private UUID takeNext() throws InterruptedException {
+        lock.lock();
+        try {
+            while (activeQueues.isEmpty() || !hasCapacity()) {
+                changed.await(CAPACITY_RECHECK_MS, TimeUnit.MILLISECONDS);
+            }
+
+            CustomerQueue customerQueue = activeQueues.peekFirst();
+
+            if (!customerQueue.quantumGranted) {
+                customerQueue.deficit += customerQueue.weight;
+                customerQueue.quantumGranted = true;
+            }
+
+            QueuedOrder queuedOrder = customerQueue.orders.pollFirst();
+            customerQueue.deficit--;
+            queuedOrderIds.remove(queuedOrder.orderId);
+
+            if (customerQueue.orders.isEmpty()) {
+                activeQueues.pollFirst();
+                customerQueues.remove(customerQueue.customerId);
+            } else if (customerQueue.deficit < 1) {
+                activeQueues.pollFirst();
+                customerQueue.quantumGranted = false;
+                activeQueues.addLast(customerQueue);
+            }
+
+            dispatching.incrementAndGet();
+            beerOrderMetrics.fairQueueDelayTimer(customerQueue.delayTag)
+                    .record(System.nanoTime() - queuedOrder.queuedAt, TimeUnit.NANOSECONDS);
+
+            return queuedOrder.orderId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Customers with a configured weight are reported on their own, everyone else together.
+     */
+    private String delayTag(UUID customerId) {
+        return fairQueueProperties.getWeights().containsKey(customerId) ? customerId.toString() : OTHER_CUSTOMERS;
+    }
+
+    private boolean hasCapacity() {
+        int inDispatch = dispatching.get();
+
+        return inDispatch < fairQueueProperties.getDispatchThreads()
+                && inDispatch + ordersInPipeline() < fairQueueProperties.getMaxDispatched();
+    }
+
+    /**
+     * Orders in validation or allocation across all instances. The gauges are reconciled from the database
+     * on a schedule, so results handled on another instance free capacity here within one reconcile interval.
+     */
+    private long ordersInPipeline() {
+        return Math.max(0, orderStatusGauges.count(BeerOrderStatusEnum.VALIDATION_PENDING))
+                + Math.max(0, orderStatusGauges.count(BeerOrderStatusEnum.VALIDATED))
+                + Math.max(0, orderStatusGauges.count(BeerOrderStatusEnum.ALLOCATION_PENDING));
+    }
+
+    private void dispatch(UUID orderId) {
+        try {
+            beerOrderManager.validateOrder(orderId);
+        } catch (RuntimeException e) {
+            log.error("Unable to send order to validation. Id: " + orderId, e);
+        } finally {
+            dispatching.decrementAndGet();
+            signal();
+        }
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class CustomerQueue {
+        private final UUID customerId;
+        private final int weight;
+        private final String delayTag;
+        private final Deque<QueuedOrder> orders = new ArrayDeque<>();
+        private int deficit;
+        private boolean quantumGranted;
+        private boolean active;
+
+        CustomerQueue(UUID customerId, int weight, String delayTag) {
+            this.customerId = customerId;
+            this.weight = weight;
+            this.delayTag = delayTag;
+        }
+    }
+
+    private static class QueuedOrder {
+        private final UUID orderId;
+        private final long queuedAt;
+
+        QueuedOrder(UUID orderId, long queuedAt) {
+            this.orderId = orderId;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package guru.sfg.beer.order.service.services.scheduling;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Fair queuing of new orders ahead of validation. A customer's weight is the number of orders it may
+ * dispatch per round.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sfg.order.fair-queue")
+public class FairQueueProperties {
+
+    /**
+     * Orders allowed in the validation and allocation stages at once. Further orders wait in the fair queue.
+     */
+    private int maxDispatched = 200;
+
+    private int dispatchThreads = 4;
+
+    private int defaultWeight = 1;
+
+    private Map<UUID, Integer> weights = new HashMap<>();
+
+    public int weightFor(UUID customerId) {
+        return Math.max(1, weights.getOrDefault(customerId, defaultWeight));
+    }
+}
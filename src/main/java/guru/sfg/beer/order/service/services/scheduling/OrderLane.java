@@ -0,0 +1,8 @@
+package guru.sfg.beer.order.service.services.scheduling;
+
+/**
+ * Customer facing work (pickups, cancellations) runs in the express lane, saga result processing in bulk.
+ */
+public enum OrderLane {
+    EXPRESS, BULK
+}
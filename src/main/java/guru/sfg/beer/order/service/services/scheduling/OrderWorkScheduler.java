@@ -0,0 +1,61 @@
+package guru.sfg.beer.order.service.services.scheduling;
+
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds how much order work runs at once and keeps part of that capacity for the express lane.
+ *
+ * Bulk work may never hold more than {@code capacity - express-reserved} permits, so during a backlog of
+ * saga results a pickup or cancellation still finds a free slot instead of queueing behind it. Defaults
+ * match the size of the database connection pool.
+ */
+@Component
+public class OrderWorkScheduler {
+
+    private final BeerOrderMetrics beerOrderMetrics;
+    private final Semaphore capacity;
+    private final Semaphore bulkCapacity;
+
+    public OrderWorkScheduler(BeerOrderMetrics beerOrderMetrics,
+                              @Value("${sfg.order.lanes.capacity:10}") int capacity,
+                              @Value("${sfg.order.lanes.express-reserved:2}") int expressReserved) {
+        Assert.isTrue(expressReserved > 0 && expressReserved < capacity,
+                "Express reserved capacity must be between 1 and " + (capacity - 1));
+
+        this.beerOrderMetrics = beerOrderMetrics;
+        this.capacity = new Semaphore(capacity, true);
+        this.bulkCapacity = new Semaphore(capacity - expressReserved, true);
+    }
+
+    public void run(OrderLane lane, Runnable work) {
+        Timer.Sample sample = beerOrderMetrics.startTimer();
+        long waitStart = System.nanoTime();
+
+        if (lane == OrderLane.BULK) {
+            bulkCapacity.acquireUninterruptibly();
+        }
+
+        try {
+            capacity.acquireUninterruptibly();
+            beerOrderMetrics.laneWaitTimer(lane).record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+
+            try {
+                work.run();
+            } finally {
+                capacity.release();
+            }
+        } finally {
+            if (lane == OrderLane.BULK) {
+                bulkCapacity.release();
+            }
+            sample.stop(beerOrderMetrics.laneTimer(lane));
+        }
+    }
+}
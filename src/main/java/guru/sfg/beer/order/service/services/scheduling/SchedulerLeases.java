@@ -0,0 +1,55 @@
+package guru.sfg.beer.order.service.services.scheduling;
+
+import guru.sfg.beer.order.service.domain.SchedulerLease;
+import guru.sfg.beer.order.service.repositories.SchedulerLeaseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Database leases for jobs that must run on one instance at a time. A job takes or renews its lease before
+ * each unit of work and skips the work when another instance holds it; a lease left by a stopped instance
+ * is taken over once it expires.
+ */
+@Slf4j
+@Component
+public class SchedulerLeases {
+
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final String owner = UUID.randomUUID().toString();
+
+    public SchedulerLeases(SchedulerLeaseRepository schedulerLeaseRepository) {
+        this.schedulerLeaseRepository = schedulerLeaseRepository;
+    }
+
+    /**
+     * Takes or renews the lease for {@code duration} from now.
+     *
+     * @return true when this instance holds the lease
+     */
+    public boolean tryAcquire(String name, Duration duration) {
+        long now = System.currentTimeMillis();
+        Timestamp expiresAt = new Timestamp(now + duration.toMillis());
+
+        if (schedulerLeaseRepository.acquire(name, owner, new Timestamp(now), expiresAt) > 0) {
+            return true;
+        }
+
+        if (schedulerLeaseRepository.existsById(name)) {
+            return false;
+        }
+
+        try {
+            schedulerLeaseRepository.save(new SchedulerLease(name, owner, expiresAt));
+            log.debug("Created lease " + name);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // created by another instance at the same time
+            return false;
+        }
+    }
+}
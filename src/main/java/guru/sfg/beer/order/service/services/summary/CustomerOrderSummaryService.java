@@ -0,0 +1,14 @@
+package guru.sfg.beer.order.service.services.summary;
+
+import guru.sfg.beer.order.service.web.model.CustomerOrderSummaryDto;
+
+import java.util.UUID;
+
+public interface CustomerOrderSummaryService {
+
+    CustomerOrderSummaryDto getSummary(UUID customerId);
+
+    void compact();
+
+    void backfill();
+}
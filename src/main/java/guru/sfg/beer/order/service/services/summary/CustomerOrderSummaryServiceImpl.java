@@ -0,0 +1,220 @@
+package guru.sfg.beer.order.service.services.summary;
+
+import guru.sfg.beer.order.service.domain.BeerOrderLine;
+import guru.sfg.beer.order.service.domain.CustomerOrderSummary;
+import guru.sfg.beer.order.service.domain.CustomerOrderSummaryDelta;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.CustomerOrderSummaryDeltaRepository;
+import guru.sfg.beer.order.service.repositories.CustomerOrderSummaryRepository;
+import guru.sfg.beer.order.service.repositories.projections.CustomerOrderTotals;
+import guru.sfg.beer.order.service.services.BeerOrderAllocationUpdatedEvent;
+import guru.sfg.beer.order.service.services.scheduling.SchedulerLeases;
+import guru.sfg.beer.order.service.sm.BeerOrderStatusChangedEvent;
+import guru.sfg.beer.order.service.web.mappers.CustomerOrderSummaryMapper;
+import guru.sfg.beer.order.service.web.model.CustomerOrderSummaryDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps per customer order totals.
+ *
+ * Status changes and allocation updates write an insert only delta row in their own transaction (these
+ * listeners are synchronous, so they join it). A scheduled job folds the oldest deltas into the summary
+ * table; reads add any deltas not yet folded, reading both in one repeatable read transaction so a
+ * compaction in between is seen entirely or not at all.
+ *
+ * Customers whose summary was never rebuilt from their orders, such as those with orders placed before
+ * summaries were kept, are backfilled by a scheduled job on the instance holding the backfill lease. Each
+ * customer is rebuilt in a serializable transaction that replaces the summary with totals read from the
+ * orders and drops the customer's pending deltas, which those totals already include.
+ */
+@Slf4j
+@Service
+public class CustomerOrderSummaryServiceImpl implements CustomerOrderSummaryService {
+
+    static final String BACKFILL_LEASE_NAME = "order-summary-backfill";
+
+    private final CustomerOrderSummaryRepository customerOrderSummaryRepository;
+    private final CustomerOrderSummaryDeltaRepository customerOrderSummaryDeltaRepository;
+    private final BeerOrderRepository beerOrderRepository;
+    private final CustomerOrderSummaryMapper customerOrderSummaryMapper;
+    private final SchedulerLeases schedulerLeases;
+    private final TransactionTemplate backfillTransactionTemplate;
+    private final int compactionBatchSize;
+    private final Duration backfillLease;
+
+    public CustomerOrderSummaryServiceImpl(CustomerOrderSummaryRepository customerOrderSummaryRepository,
+                                           CustomerOrderSummaryDeltaRepository customerOrderSummaryDeltaRepository,
+                                           BeerOrderRepository beerOrderRepository,
+                                           CustomerOrderSummaryMapper customerOrderSummaryMapper,
+                                           SchedulerLeases schedulerLeases,
+                                           PlatformTransactionManager transactionManager,
+                                           @Value("${sfg.order.summary.compaction-batch-size:1000}") int compactionBatchSize,
+                                           @Value("${sfg.order.summary.backfill-lease:10m}") Duration backfillLease) {
+        this.customerOrderSummaryRepository = customerOrderSummaryRepository;
+        this.customerOrderSummaryDeltaRepository = customerOrderSummaryDeltaRepository;
+        this.beerOrderRepository = beerOrderRepository;
+        this.customerOrderSummaryMapper = customerOrderSummaryMapper;
+        this.schedulerLeases = schedulerLeases;
+        this.compactionBatchSize = compactionBatchSize;
+        this.backfillLease = backfillLease;
+
+        // the order totals and the deltas they replace must come from the same state
+        this.backfillTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.backfillTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+    }
+
+    @EventListener
+    public void onStatusChanged(BeerOrderStatusChangedEvent event) {
+        if (event.getCustomerId() == null) {
+            return;
+        }
+
+        CustomerOrderSummaryDelta.CustomerOrderSummaryDeltaBuilder delta = CustomerOrderSummaryDelta.builder()
+                .customerId(event.getCustomerId())
+                .previousStatus(event.getPreviousStatus())
+                .orderStatus(event.getStatus());
+
+        if (event.getPreviousStatus() == null) {
+            // newly placed, the order is still in the persistence context of the placing transaction
+            beerOrderRepository.findById(event.getOrderId()).ifPresent(beerOrder -> {
+                int quantity = 0;
+                for (BeerOrderLine line : beerOrder.getBeerOrderLines()) {
+                    quantity += line.getOrderQuantity() != null ? line.getOrderQuantity() : 0;
+                }
+
+                delta.lineDelta(beerOrder.getBeerOrderLines().size())
+                        .quantityOrderedDelta(quantity)
+                        .orderPlacedDate(beerOrder.getCreatedDate());
+            });
+        }
+
+        customerOrderSummaryDeltaRepository.save(delta.build());
+    }
+
+    @EventListener
+    public void onAllocationUpdated(BeerOrderAllocationUpdatedEvent event) {
+        if (event.getCustomerId() == null || event.getQuantityAllocatedDelta() == 0) {
+            return;
+        }
+
+        customerOrderSummaryDeltaRepository.save(CustomerOrderSummaryDelta.builder()
+                .customerId(event.getCustomerId())
+                .quantityAllocatedDelta(event.getQuantityAllocatedDelta())
+                .build());
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    @Override
+    public CustomerOrderSummaryDto getSummary(UUID customerId) {
+        CustomerOrderSummary summary = customerOrderSummaryRepository.findById(customerId)
+                .map(CustomerOrderSummary::copy)
+                .orElseGet(() -> new CustomerOrderSummary(customerId));
+
+        customerOrderSummaryDeltaRepository.findAllByCustomerId(customerId).forEach(summary::apply);
+
+        return customerOrderSummaryMapper.summaryToDto(summary);
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${sfg.order.summary.compaction-interval-ms:5000}")
+    @Override
+    public void compact() {
+        List<CustomerOrderSummaryDelta> deltas =
+                customerOrderSummaryDeltaRepository.findOldestForCompaction(PageRequest.of(0, compactionBatchSize));
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, CustomerOrderSummary> summaries = new LinkedHashMap<>();
+
+        deltas.forEach(delta -> summaries.computeIfAbsent(delta.getCustomerId(),
+                customerId -> customerOrderSummaryRepository.findById(customerId)
+                        .orElseGet(() -> new CustomerOrderSummary(customerId)))
+                .apply(delta));
+
+        customerOrderSummaryRepository.saveAll(summaries.values());
+        customerOrderSummaryDeltaRepository.deleteInBatch(deltas);
+
+        log.debug("Compacted " + deltas.size() + " order summary deltas for " + summaries.size() + " customers");
+    }
+
+    @Scheduled(fixedDelayString = "${sfg.order.summary.backfill-interval-ms:3600000}")
+    @Override
+    public void backfill() {
+        if (!schedulerLeases.tryAcquire(BACKFILL_LEASE_NAME, backfillLease)) {
+            log.debug("Order summary backfill skipped, the lease is held by another instance");
+            return;
+        }
+
+        UUID afterId = new UUID(0, 0);
+        int rebuilt = 0;
+
+        while (true) {
+            List<UUID> customerIds = customerOrderSummaryRepository.findCustomersToBackfill(afterId,
+                    PageRequest.of(0, compactionBatchSize));
+
+            if (customerIds.isEmpty()) {
+                break;
+            }
+
+            for (UUID customerId : customerIds) {
+                try {
+                    backfillTransactionTemplate.executeWithoutResult(status -> rebuild(customerId));
+                    rebuilt++;
+                } catch (RuntimeException e) {
+                    // conflicts with a concurrent change or compaction, retried on the next run
+                    log.warn("Unable to backfill the order summary of customer " + customerId + ": " + e.getMessage());
+                }
+            }
+
+            afterId = customerIds.get(customerIds.size() - 1);
+
+            // renewed per page, and stops if it was lost meanwhile
+            if (!schedulerLeases.tryAcquire(BACKFILL_LEASE_NAME, backfillLease)) {
+                break;
+            }
+        }
+
+        if (rebuilt > 0) {
+            log.info("Backfilled the order summaries of " + rebuilt + " customers");
+        }
+    }
+
+    private void rebuild(UUID customerId) {
+        CustomerOrderSummary summary = customerOrderSummaryRepository.findById(customerId)
+                .orElseGet(() -> new CustomerOrderSummary(customerId));
+        List<CustomerOrderSummaryDelta> deltas = customerOrderSummaryDeltaRepository.findAllByCustomerId(customerId);
+        CustomerOrderTotals totals = beerOrderRepository.findTotalsByCustomerId(customerId);
+
+        summary.getStatusCounts().clear();
+        beerOrderRepository.countGroupByOrderStatusForCustomer(customerId)
+                .forEach(count -> summary.getStatusCounts().put(count.getOrderStatus(), count.getTotal()));
+
+        summary.setTotalLines(totals.getTotalLines());
+        summary.setTotalQuantityOrdered(totals.getTotalQuantityOrdered());
+        summary.setTotalQuantityAllocated(totals.getTotalQuantityAllocated());
+        summary.setLastOrderDate(totals.getLastOrderDate());
+        summary.setBackfilledDate(new Timestamp(System.currentTimeMillis()));
+
+        customerOrderSummaryRepository.save(summary);
+        customerOrderSummaryDeltaRepository.deleteInBatch(deltas);
+    }
+}
@@ -7,6 +7,7 @@ import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
 import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.messaging.Message;
 import org.springframework.statemachine.StateMachine;
 import org.springframework.statemachine.state.State;
@@ -16,7 +17,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
-import java.util.UUID;
 
 /**
  * Created by jt on 11/30/19.
@@ -27,6 +27,7 @@ import java.util.UUID;
 public class BeerOrderStateChangeInterceptor extends StateMachineInterceptorAdapter<BeerOrderStatusEnum, BeerOrderEventEnum> {
 
     private final BeerOrderRepository beerOrderRepository;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
     @Transactional
     @Override
@@ -34,13 +35,19 @@ public class BeerOrderStateChangeInterceptor extends StateMachineInterceptorAdap
         log.debug("Pre-State Change");
 
         Optional.ofNullable(message)
-                .flatMap(msg -> Optional.ofNullable((String) msg.getHeaders().getOrDefault(BeerOrderManagerImpl.ORDER_ID_HEADER, " ")))
-                .ifPresent(orderId -> {
-                    log.debug("Saving state for order id: " + orderId + " Status: " + state.getId());
+                .map(msg -> msg.getHeaders().get(BeerOrderManagerImpl.BEER_ORDER_HEADER, BeerOrder.class))
+                .ifPresent(beerOrder -> {
+                    log.debug("Saving state for order id: " + beerOrder.getId() + " Status: " + state.getId());
 
-                    BeerOrder beerOrder = beerOrderRepository.getOne(UUID.fromString(orderId));
+                    // the order the event was sent for, already managed by the caller's transaction
+                    BeerOrderStatusEnum previousStatus = beerOrder.getOrderStatus();
                     beerOrder.setOrderStatus(state.getId());
-                    beerOrderRepository.saveAndFlush(beerOrder);
+                    // the re-drive budget is per status
+                    beerOrder.setRedriveAttempts(null);
+                    // written on commit, together with whatever else the caller's transaction changes
+                    beerOrderRepository.save(beerOrder);
+
+                    applicationEventPublisher.publishEvent(BeerOrderStatusChangedEvent.of(beerOrder, previousStatus));
                 });
     }
 }
@@ -0,0 +1,28 @@
+package guru.sfg.beer.order.service.sm;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.UUID;
+
+/**
+ * Published whenever a beer order enters a new status. {@code previousStatus} is null for newly placed orders.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class BeerOrderStatusChangedEvent {
+    private final UUID orderId;
+    private final UUID customerId;
+    private final BeerOrderStatusEnum previousStatus;
+    private final BeerOrderStatusEnum status;
+
+    public static BeerOrderStatusChangedEvent of(BeerOrder beerOrder, BeerOrderStatusEnum previousStatus) {
+        UUID customerId = beerOrder.getCustomer() != null ? beerOrder.getCustomer().getId() : null;
+
+        return new BeerOrderStatusChangedEvent(beerOrder.getId(), customerId, previousStatus, beerOrder.getOrderStatus());
+    }
+}
@@ -4,19 +4,17 @@ import guru.sfg.beer.order.service.config.JmsConfig;
 import guru.sfg.beer.order.service.domain.BeerOrder;
 import guru.sfg.beer.order.service.domain.BeerOrderEventEnum;
 import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
-import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
 import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
+import guru.sfg.beer.order.service.services.messaging.OrderMessageSender;
 import guru.sfg.beer.order.service.web.mappers.BeerOrderMapper;
 import guru.sfg.brewery.model.events.AllocateOrderRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.jms.core.JmsTemplate;
 import org.springframework.statemachine.StateContext;
 import org.springframework.statemachine.action.Action;
 import org.springframework.stereotype.Component;
 
 import java.util.Optional;
-import java.util.UUID;
 
 /**
  * Created by jt on 12/2/19.
@@ -26,20 +24,21 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class AllocateOrderAction implements Action<BeerOrderStatusEnum, BeerOrderEventEnum> {
 
-    private final JmsTemplate jmsTemplate;
-    private final BeerOrderRepository beerOrderRepository;
+    private final OrderMessageSender orderMessageSender;
     private final BeerOrderMapper beerOrderMapper;
 
     @Override
     public void execute(StateContext<BeerOrderStatusEnum, BeerOrderEventEnum> context) {
         String beerOrderId = (String) context.getMessage().getHeaders().get(BeerOrderManagerImpl.ORDER_ID_HEADER);
-        Optional<BeerOrder> beerOrderOptional = beerOrderRepository.findById(UUID.fromString(beerOrderId));
+        Optional<BeerOrder> beerOrderOptional = Optional.ofNullable(
+                context.getMessage().getHeaders().get(BeerOrderManagerImpl.BEER_ORDER_HEADER, BeerOrder.class));
 
         beerOrderOptional.ifPresentOrElse(beerOrder -> {
-                    jmsTemplate.convertAndSend(JmsConfig.ALLOCATE_ORDER_QUEUE,
-                            AllocateOrderRequest.builder()
+                    AllocateOrderRequest request = AllocateOrderRequest.builder()
                             .beerOrderDto(beerOrderMapper.beerOrderToDto(beerOrder))
-                            .build());
+                            .build();
+
+                    orderMessageSender.send(JmsConfig.ALLOCATE_ORDER_QUEUE, beerOrder.getId(), request);
                     log.debug("Sent Allocation Request for order id: " + beerOrderId);
                 }, () -> log.error("Beer Order Not Found!"));
     }
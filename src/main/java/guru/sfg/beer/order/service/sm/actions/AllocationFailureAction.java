@@ -4,10 +4,10 @@ import guru.sfg.beer.order.service.config.JmsConfig;
 import guru.sfg.beer.order.service.domain.BeerOrderEventEnum;
 import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
 import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
+import guru.sfg.beer.order.service.services.messaging.OrderMessageSender;
 import guru.sfg.brewery.model.events.AllocationFailureEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.jms.core.JmsTemplate;
 import org.springframework.statemachine.StateContext;
 import org.springframework.statemachine.action.Action;
 import org.springframework.stereotype.Component;
@@ -22,15 +22,17 @@ import java.util.UUID;
 @Component
 public class AllocationFailureAction implements Action<BeerOrderStatusEnum, BeerOrderEventEnum> {
 
-    private final JmsTemplate jmsTemplate;
+    private final OrderMessageSender orderMessageSender;
 
     @Override
     public void execute(StateContext<BeerOrderStatusEnum, BeerOrderEventEnum> context) {
         String beerOrderId = (String) context.getMessage().getHeaders().get(BeerOrderManagerImpl.ORDER_ID_HEADER);
 
-        jmsTemplate.convertAndSend(JmsConfig.ALLOCATE_FAILURE_QUEUE, AllocationFailureEvent.builder()
-            .orderId(UUID.fromString(beerOrderId))
-                    .build());
+        UUID orderId = UUID.fromString(beerOrderId);
+
+        orderMessageSender.send(JmsConfig.ALLOCATE_FAILURE_QUEUE, orderId, AllocationFailureEvent.builder()
+                .orderId(orderId)
+                .build());
 
         log.debug("Sent Allocation Failure Message to queue for order id " + beerOrderId);
     }
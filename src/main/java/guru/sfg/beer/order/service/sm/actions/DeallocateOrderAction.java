@@ -4,19 +4,17 @@ import guru.sfg.beer.order.service.config.JmsConfig;
 import guru.sfg.beer.order.service.domain.BeerOrder;
 import guru.sfg.beer.order.service.domain.BeerOrderEventEnum;
 import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
-import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
 import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
+import guru.sfg.beer.order.service.services.messaging.OrderMessageSender;
 import guru.sfg.beer.order.service.web.mappers.BeerOrderMapper;
 import guru.sfg.brewery.model.events.DeallocateOrderRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.jms.core.JmsTemplate;
 import org.springframework.statemachine.StateContext;
 import org.springframework.statemachine.action.Action;
 import org.springframework.stereotype.Component;
 
 import java.util.Optional;
-import java.util.UUID;
 
 /**
  * Created by jt on 2/29/20.
@@ -26,20 +24,21 @@ import java.util.UUID;
 @Component
 public class DeallocateOrderAction implements Action<BeerOrderStatusEnum, BeerOrderEventEnum> {
 
-    private final JmsTemplate jmsTemplate;
-    private final BeerOrderRepository beerOrderRepository;
+    private final OrderMessageSender orderMessageSender;
     private final BeerOrderMapper beerOrderMapper;
 
     @Override
     public void execute(StateContext<BeerOrderStatusEnum, BeerOrderEventEnum> context) {
         String beerOrderId = (String) context.getMessage().getHeaders().get(BeerOrderManagerImpl.ORDER_ID_HEADER);
-        Optional<BeerOrder> beerOrderOptional = beerOrderRepository.findById(UUID.fromString(beerOrderId));
+        Optional<BeerOrder> beerOrderOptional = Optional.ofNullable(
+                context.getMessage().getHeaders().get(BeerOrderManagerImpl.BEER_ORDER_HEADER, BeerOrder.class));
 
         beerOrderOptional.ifPresentOrElse(beerOrder -> {
-            jmsTemplate.convertAndSend(JmsConfig.DEALLOCATE_ORDER_QUEUE,
-                    DeallocateOrderRequest.builder()
-                            .beerOrderDto(beerOrderMapper.beerOrderToDto(beerOrder))
-                            .build());
+            DeallocateOrderRequest request = DeallocateOrderRequest.builder()
+                    .beerOrderDto(beerOrderMapper.beerOrderToDto(beerOrder))
+                    .build();
+
+            orderMessageSender.send(JmsConfig.DEALLOCATE_ORDER_QUEUE, beerOrder.getId(), request);
             log.debug("Sent Deallocation Request for order id: " + beerOrderId);
         }, () -> log.error("Beer Order Not Found!"));
     }
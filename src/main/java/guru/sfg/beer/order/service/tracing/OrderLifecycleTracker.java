@@ -0,0 +1,162 @@
+package guru.sfg.beer.order.service.tracing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.jfr.JmsReceiveEvent;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.sm.BeerOrderStatusChangedEvent;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.support.JmsHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records where the time goes between order placement and allocation.
+ *
+ * Each result message is split into three stages: queue wait (remote publish until we receive it), remote
+ * (our request send until the remote publishes its result, which requires the remote to echo
+ * {@link OrderTraceContext#SENT_AT_HEADER}) and local handling. Orders not allocated within the configured SLO
+ * are counted once as a breach.
+ *
+ * Orders are tracked for a multiple of the SLO, long after any breach was counted, and up to a maximum
+ * number, so orders whose allocation this instance never sees do not pile up.
+ */
+@Slf4j
+@Component
+public class OrderLifecycleTracker {
+    public static final String STAGE_QUEUE_WAIT = "queue_wait";
+    public static final String STAGE_REMOTE = "remote";
+    public static final String STAGE_LOCAL = "local";
+
+    static final int TRACKED_SLO_MULTIPLE = 10;
+
+    private final BeerOrderMetrics beerOrderMetrics;
+    private final Duration allocationSlo;
+    private final Cache<UUID, TrackedOrder> inFlight;
+
+    public OrderLifecycleTracker(BeerOrderMetrics beerOrderMetrics,
+                                 @Value("${sfg.order.tracing.allocation-slo:30s}") Duration allocationSlo,
+                                 @Value("${sfg.order.tracing.max-tracked:100000}") long maxTracked) {
+        this.beerOrderMetrics = beerOrderMetrics;
+        this.allocationSlo = allocationSlo;
+        this.inFlight = Caffeine.newBuilder()
+                .maximumSize(maxTracked)
+                .expireAfterWrite(allocationSlo.multipliedBy(TRACKED_SLO_MULTIPLE))
+                .build();
+    }
+
+    /**
+     * Runs the handler for a result message with the order's trace context bound to the thread.
+     */
+    public void handle(String queue, UUID orderId, Map<String, Object> headers, Runnable handler) {
+        long receivedAt = System.currentTimeMillis();
+
+        recordRemoteStages(queue, headers, receivedAt);
+
+        OrderTraceContext traceContext = OrderTraceContext.fromHeaders(orderId, headers)
+                .orElseGet(() -> OrderTraceContext.newTrace(orderId, placedAt(orderId).orElse(receivedAt)));
+
+        JmsReceiveEvent receiveEvent = JmsReceiveEvent.start();
+        Timer.Sample sample = beerOrderMetrics.startTimer();
+
+        try (OrderTraceContext.Scope scope = traceContext.activate()) {
+            handler.run();
+        } finally {
+            long localNanos = sample.stop(beerOrderMetrics.listenerTimer(queue));
+            beerOrderMetrics.stageTimer(STAGE_LOCAL, queue).record(localNanos, TimeUnit.NANOSECONDS);
+            receiveEvent.finish(queue, orderId);
+        }
+    }
+
+    public Optional<Long> placedAt(UUID orderId) {
+        return Optional.ofNullable(inFlight.getIfPresent(orderId)).map(TrackedOrder::getPlacedAt);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(BeerOrderStatusChangedEvent event) {
+        UUID orderId = event.getOrderId();
+        long now = System.currentTimeMillis();
+
+        if (event.getStatus() == BeerOrderStatusEnum.NEW) {
+            inFlight.put(orderId, new TrackedOrder(OrderTraceContext.current(orderId)
+                    .map(OrderTraceContext::getPlacedAt)
+                    .orElse(now)));
+        } else if (event.getStatus() == BeerOrderStatusEnum.ALLOCATED) {
+            TrackedOrder trackedOrder = inFlight.asMap().remove(orderId);
+
+            Optional<Long> placedAt = trackedOrder != null ? Optional.of(trackedOrder.getPlacedAt())
+                    : OrderTraceContext.current(orderId).map(OrderTraceContext::getPlacedAt);
+
+            placedAt.ifPresent(placed -> {
+                long elapsed = Math.max(0, now - placed);
+                beerOrderMetrics.placedToAllocatedTimer().record(elapsed, TimeUnit.MILLISECONDS);
+
+                boolean breached = elapsed > allocationSlo.toMillis();
+                if (breached && (trackedOrder == null || trackedOrder.markBreached())) {
+                    beerOrderMetrics.allocationSloBreaches().increment();
+                }
+            });
+        } else if (event.getStatus().isFinal()) {
+            inFlight.invalidate(orderId);
+        }
+    }
+
+    /**
+     * Counts orders still waiting for allocation past the SLO, so stuck orders show up before they complete.
+     */
+    @Scheduled(fixedDelayString = "${sfg.order.tracing.slo-check-interval-ms:5000}")
+    public void checkAllocationSlo() {
+        long deadline = System.currentTimeMillis() - allocationSlo.toMillis();
+
+        inFlight.asMap().forEach((orderId, trackedOrder) -> {
+            if (trackedOrder.getPlacedAt() < deadline && trackedOrder.markBreached()) {
+                log.debug("Order not allocated within SLO. Id: " + orderId);
+                beerOrderMetrics.allocationSloBreaches().increment();
+            }
+        });
+    }
+
+    private void recordRemoteStages(String queue, Map<String, Object> headers, long receivedAt) {
+        Object publishedAt = headers.get(JmsHeaders.TIMESTAMP);
+
+        if (publishedAt instanceof Number && ((Number) publishedAt).longValue() > 0) {
+            long published = ((Number) publishedAt).longValue();
+            beerOrderMetrics.stageTimer(STAGE_QUEUE_WAIT, queue)
+                    .record(Math.max(0, receivedAt - published), TimeUnit.MILLISECONDS);
+
+            Object sentAt = headers.get(OrderTraceContext.SENT_AT_HEADER);
+            if (sentAt instanceof Number) {
+                beerOrderMetrics.stageTimer(STAGE_REMOTE, queue)
+                        .record(Math.max(0, published - ((Number) sentAt).longValue()), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private static class TrackedOrder {
+        private final long placedAt;
+        private final AtomicBoolean breached = new AtomicBoolean();
+
+        TrackedOrder(long placedAt) {
+            this.placedAt = placedAt;
+        }
+
+        long getPlacedAt() {
+            return placedAt;
+        }
+
+        boolean markBreached() {
+            return breached.compareAndSet(false, true);
+        }
+    }
+}
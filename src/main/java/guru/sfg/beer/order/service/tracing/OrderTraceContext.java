@@ -0,0 +1,93 @@
+package guru.sfg.beer.order.service.tracing;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.MDC;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Trace id and placement time of an order, carried on every JMS hop of the order saga. The context of the
+ * order being processed is bound to the current thread while a placement or a result message is handled.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class OrderTraceContext {
+    public static final String TRACE_ID_HEADER = "X_ORDER_TRACE_ID";
+    public static final String PLACED_AT_HEADER = "X_ORDER_PLACED_AT";
+    public static final String SENT_AT_HEADER = "X_ORDER_SENT_AT";
+    public static final String TRACE_ID_MDC_KEY = "orderTraceId";
+
+    private static final ThreadLocal<OrderTraceContext> CURRENT = new ThreadLocal<>();
+
+    private final UUID orderId;
+    private final String traceId;
+    private final long placedAt;
+
+    public static OrderTraceContext newTrace(UUID orderId, long placedAt) {
+        String traceId = Optional.ofNullable(MDC.get("traceId"))
+                .orElseGet(() -> UUID.randomUUID().toString().replace("-", ""));
+
+        return new OrderTraceContext(orderId, traceId, placedAt);
+    }
+
+    /**
+     * Restores the context echoed back on a result message, empty if the sender did not propagate it.
+     */
+    public static Optional<OrderTraceContext> fromHeaders(UUID orderId, Map<String, Object> headers) {
+        Object traceId = headers.get(TRACE_ID_HEADER);
+        Object placedAt = headers.get(PLACED_AT_HEADER);
+
+        if (traceId == null || !(placedAt instanceof Number)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new OrderTraceContext(orderId, traceId.toString(), ((Number) placedAt).longValue()));
+    }
+
+    /**
+     * Context bound to the current thread, if it belongs to the given order.
+     */
+    public static Optional<OrderTraceContext> current(UUID orderId) {
+        return Optional.ofNullable(CURRENT.get())
+                .filter(context -> context.getOrderId().equals(orderId));
+    }
+
+    public Scope activate() {
+        OrderTraceContext previous = CURRENT.get();
+        String previousTraceId = MDC.get(TRACE_ID_MDC_KEY);
+
+        CURRENT.set(this);
+        MDC.put(TRACE_ID_MDC_KEY, traceId);
+
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+
+            if (previousTraceId == null) {
+                MDC.remove(TRACE_ID_MDC_KEY);
+            } else {
+                MDC.put(TRACE_ID_MDC_KEY, previousTraceId);
+            }
+        };
+    }
+
+    public void writeTo(Message message) throws JMSException {
+        message.setStringProperty(TRACE_ID_HEADER, traceId);
+        message.setLongProperty(PLACED_AT_HEADER, placedAt);
+        message.setLongProperty(SENT_AT_HEADER, System.currentTimeMillis());
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -18,12 +18,28 @@
 package guru.sfg.beer.order.service.web.controllers;
 
 import guru.sfg.beer.order.service.services.BeerOrderService;
+import guru.sfg.beer.order.service.services.ETags;
+import guru.sfg.beer.order.service.services.bulk.BulkOrderPlacementService;
+import guru.sfg.beer.order.service.services.cache.BeerOrderDtoCache;
+import guru.sfg.beer.order.service.services.idempotency.PlacementKeyIndex;
+import guru.sfg.beer.order.service.services.summary.CustomerOrderSummaryService;
+import guru.sfg.beer.order.service.web.model.BeerOrderSummaryDto;
+import guru.sfg.beer.order.service.web.model.BeerOrderSummaryPagedList;
+import guru.sfg.beer.order.service.web.model.BulkOrderResponse;
+import guru.sfg.beer.order.service.web.model.CustomerOrderSummaryDto;
+import guru.sfg.beer.order.service.web.model.OrderStatusBatchRequest;
+import guru.sfg.beer.order.service.web.model.OrderStatusBatchResponse;
 import guru.sfg.brewery.model.BeerOrderDto;
 import guru.sfg.brewery.model.BeerOrderPagedList;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.UUID;
 
 @RequestMapping("/api/v1/customers/{customerId}/")
@@ -32,17 +48,28 @@ public class BeerOrderController {
 
     private static final Integer DEFAULT_PAGE_NUMBER = 0;
     private static final Integer DEFAULT_PAGE_SIZE = 25;
+    private static final String SUMMARY_VIEW = "view=summary";
 
     private final BeerOrderService beerOrderService;
+    private final CustomerOrderSummaryService customerOrderSummaryService;
+    private final BulkOrderPlacementService bulkOrderPlacementService;
+    private final int maxBatchGetIds;
 
-    public BeerOrderController(BeerOrderService beerOrderService) {
+    public BeerOrderController(BeerOrderService beerOrderService,
+                               CustomerOrderSummaryService customerOrderSummaryService,
+                               BulkOrderPlacementService bulkOrderPlacementService,
+                               @Value("${sfg.order.status-batch.max-ids:500}") int maxBatchGetIds) {
         this.beerOrderService = beerOrderService;
+        this.customerOrderSummaryService = customerOrderSummaryService;
+        this.bulkOrderPlacementService = bulkOrderPlacementService;
+        this.maxBatchGetIds = maxBatchGetIds;
     }
 
     @GetMapping("orders")
     public BeerOrderPagedList listOrders(@PathVariable("customerId") UUID customerId,
                                          @RequestParam(value = "pageNumber", required = false) Integer pageNumber,
-                                         @RequestParam(value = "pageSize", required = false) Integer pageSize){
+                                         @RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                         WebRequest webRequest){
 
         if (pageNumber == null || pageNumber < 0){
             pageNumber = DEFAULT_PAGE_NUMBER;
@@ -52,18 +79,105 @@ public class BeerOrderController {
             pageSize = DEFAULT_PAGE_SIZE;
         }
 
-        return beerOrderService.listOrders(customerId, PageRequest.of(pageNumber, pageSize));
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize);
+
+        if (webRequest.checkNotModified(beerOrderService.getOrdersETag(customerId, pageRequest))) {
+            return null;
+        }
+
+        return beerOrderService.listOrders(customerId, pageRequest);
+    }
+
+    @GetMapping(value = "orders", params = SUMMARY_VIEW)
+    public BeerOrderSummaryPagedList listOrderSummaries(@PathVariable("customerId") UUID customerId,
+                                                        @RequestParam(value = "pageNumber", required = false) Integer pageNumber,
+                                                        @RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                                        WebRequest webRequest){
+
+        if (pageNumber == null || pageNumber < 0){
+            pageNumber = DEFAULT_PAGE_NUMBER;
+        }
+
+        if (pageSize == null || pageSize < 1) {
+            pageSize = DEFAULT_PAGE_SIZE;
+        }
+
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize);
+
+        if (webRequest.checkNotModified(ETags.ofView(ETags.SUMMARY_VIEW,
+                beerOrderService.getOrdersETag(customerId, pageRequest)))) {
+            return null;
+        }
+
+        return beerOrderService.listOrderSummaries(customerId, pageRequest);
     }
 
     @PostMapping("orders")
     @ResponseStatus(HttpStatus.CREATED)
-    public BeerOrderDto placeOrder(@PathVariable("customerId") UUID customerId, @RequestBody BeerOrderDto beerOrderDto){
-        return beerOrderService.placeOrder(customerId, beerOrderDto);
+    public BeerOrderDto placeOrder(@PathVariable("customerId") UUID customerId, @RequestBody BeerOrderDto beerOrderDto,
+                                   @RequestHeader(value = PlacementKeyIndex.IDEMPOTENCY_KEY_HEADER, required = false)
+                                           String idempotencyKey){
+        if (exceedsKeyLength(idempotencyKey) || exceedsKeyLength(beerOrderDto.getCustomerRef())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency keys and customer refs are limited to "
+                    + PlacementKeyIndex.MAX_KEY_LENGTH + " characters");
+        }
+
+        return beerOrderService.placeOrder(customerId, beerOrderDto, idempotencyKey);
+    }
+
+    /**
+     * Places many orders from one request body, either NDJSON or a JSON array of orders.
+     */
+    @PostMapping("orders:bulk")
+    public BulkOrderResponse placeOrders(@PathVariable("customerId") UUID customerId, InputStream body)
+            throws IOException {
+        return bulkOrderPlacementService.placeOrders(customerId, body);
+    }
+
+    @GetMapping("orders/summary")
+    public CustomerOrderSummaryDto getCustomerOrderSummary(@PathVariable("customerId") UUID customerId){
+        return customerOrderSummaryService.getSummary(customerId);
+    }
+
+    @PostMapping("orders/status:batchGet")
+    public OrderStatusBatchResponse batchGetOrderStatus(@PathVariable("customerId") UUID customerId,
+                                                        @RequestBody OrderStatusBatchRequest request){
+        if (request.getOrderIds() == null || request.getOrderIds().size() > maxBatchGetIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Between 0 and " + maxBatchGetIds + " order ids are accepted per call");
+        }
+
+        // single projection query, no order hydration and no beer service lookups
+        return beerOrderService.getOrderStatuses(customerId, request.getOrderIds());
     }
 
     @GetMapping("orders/{orderId}")
-    public BeerOrderDto getOrder(@PathVariable("customerId") UUID customerId, @PathVariable("orderId") UUID orderId){
-        return beerOrderService.getOrderById(customerId, orderId);
+    public BeerOrderDto getOrder(@PathVariable("customerId") UUID customerId, @PathVariable("orderId") UUID orderId,
+                                 @RequestHeader(value = BeerOrderDtoCache.BYPASS_HEADER, defaultValue = "false")
+                                         boolean bypassCache,
+                                 WebRequest webRequest){
+        // version probe first, so unchanged orders are answered without loading, mapping or beer lookups
+        if (webRequest.checkNotModified(beerOrderService.getOrderETag(customerId, orderId))) {
+            return null;
+        }
+
+        return beerOrderService.getOrderById(customerId, orderId, bypassCache);
+    }
+
+    @GetMapping(value = "orders/{orderId}", params = SUMMARY_VIEW)
+    public BeerOrderSummaryDto getOrderSummaryView(@PathVariable("customerId") UUID customerId,
+                                                   @PathVariable("orderId") UUID orderId,
+                                                   WebRequest webRequest){
+        if (webRequest.checkNotModified(ETags.ofView(ETags.SUMMARY_VIEW,
+                beerOrderService.getOrderETag(customerId, orderId)))) {
+            return null;
+        }
+
+        return beerOrderService.getOrderSummaryById(customerId, orderId);
+    }
+
+    private static boolean exceedsKeyLength(String key) {
+        return key != null && key.length() > PlacementKeyIndex.MAX_KEY_LENGTH;
     }
 
     @PutMapping("/orders/{orderId}/pickup")
@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * Created by jt on 3/7/20.
@@ -26,7 +27,8 @@ public class CustomerController {
 
     @GetMapping
     public CustomerPagedList listCustomers(@RequestParam(value = "pageNumber", required = false) Integer pageNumber,
-                                           @RequestParam(value = "pageSize", required = false) Integer pageSize){
+                                           @RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                           WebRequest webRequest){
 
         if (pageNumber == null || pageNumber < 0){
             pageNumber = DEFAULT_PAGE_NUMBER;
@@ -36,6 +38,12 @@ public class CustomerController {
             pageSize = DEFAULT_PAGE_SIZE;
         }
 
-        return customerService.listCustomers(PageRequest.of(pageNumber, pageSize));
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize);
+
+        if (webRequest.checkNotModified(customerService.getCustomersETag(pageRequest))) {
+            return null;
+        }
+
+        return customerService.listCustomers(pageRequest);
     }
 }
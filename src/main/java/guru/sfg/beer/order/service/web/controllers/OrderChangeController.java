@@ -0,0 +1,51 @@
+package guru.sfg.beer.order.service.web.controllers;
+
+import guru.sfg.beer.order.service.services.changes.ChangeFeedToken;
+import guru.sfg.beer.order.service.services.changes.OrderChangeFeedService;
+import guru.sfg.beer.order.service.web.model.OrderChangeFeed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/orders/")
+@RestController
+public class OrderChangeController {
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    private static final Duration MAX_WAIT = Duration.ofSeconds(60);
+
+    private final OrderChangeFeedService orderChangeFeedService;
+
+    @GetMapping("changes")
+    public DeferredResult<OrderChangeFeed> listChanges(@RequestParam(value = "since", required = false) String since,
+                                                       @RequestParam(value = "limit", required = false) Integer limit,
+                                                       @RequestParam(value = "wait", required = false) Duration wait){
+        if (limit == null || limit < 1) {
+            limit = DEFAULT_LIMIT;
+        }
+
+        if (wait == null) {
+            wait = Duration.ZERO;
+        } else if (wait.compareTo(MAX_WAIT) > 0) {
+            wait = MAX_WAIT;
+        }
+
+        ChangeFeedToken token;
+        try {
+            token = ChangeFeedToken.decode(since);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        return orderChangeFeedService.awaitChanges(token, Math.min(limit, MAX_LIMIT), wait);
+    }
+}
@@ -0,0 +1,75 @@
+package guru.sfg.beer.order.service.web.controllers;
+
+import guru.sfg.beer.order.service.config.RequestAsyncTimeoutInterceptor;
+import guru.sfg.beer.order.service.services.export.OrderExportFormat;
+import guru.sfg.beer.order.service.services.export.OrderExportService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+@RequestMapping("/api/v1/orders/")
+@RestController
+public class OrderExportController {
+
+    private final OrderExportService orderExportService;
+    private final Duration exportTimeout;
+
+    public OrderExportController(OrderExportService orderExportService,
+                                 @Value("${sfg.order.export.timeout:30m}") Duration exportTimeout) {
+        this.orderExportService = orderExportService;
+        this.exportTimeout = exportTimeout;
+    }
+
+    /**
+     * Streams every order created in [from, to). The response is written while the rows are read, so
+     * exports of any size run in constant memory. The stream gets its own timeout, as it runs for as long
+     * as the cursor has rows.
+     */
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            HttpServletRequest request){
+
+        OrderExportFormat exportFormat;
+        try {
+            exportFormat = OrderExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format " + format);
+        }
+
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+
+        Timestamp fromTimestamp = Timestamp.from(from.toInstant());
+        Timestamp toTimestamp = Timestamp.from(to.toInstant());
+
+        request.setAttribute(RequestAsyncTimeoutInterceptor.TIMEOUT_ATTRIBUTE, exportTimeout);
+
+        StreamingResponseBody body = out ->
+                orderExportService.exportOrders(fromTimestamp, toTimestamp, exportFormat, out);
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder("attachment")
+                        .filename("orders." + exportFormat.getExtension())
+                        .build().toString())
+                .body(body);
+    }
+}
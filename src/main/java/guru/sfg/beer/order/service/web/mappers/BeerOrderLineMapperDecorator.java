@@ -33,12 +33,13 @@ public abstract class BeerOrderLineMapperDecorator implements BeerOrderLineMappe
         BeerOrderLineDto orderLineDto = beerOrderLineMapper.beerOrderLineToDto(line);
         Optional<BeerDto> beerDtoOptional = beerService.getBeerByUpc(line.getUpc());
 
-        beerDtoOptional.ifPresent(beerDto -> {
+        if (beerDtoOptional.isPresent()) {
+            BeerDto beerDto = beerDtoOptional.get();
             orderLineDto.setBeerName(beerDto.getBeerName());
             orderLineDto.setBeerStyle(beerDto.getBeerStyle());
             orderLineDto.setPrice(beerDto.getPrice());
             orderLineDto.setBeerId(beerDto.getId());
-        });
+        }
 
         return orderLineDto;
     }
@@ -0,0 +1,11 @@
+package guru.sfg.beer.order.service.web.mappers;
+
+import guru.sfg.beer.order.service.repositories.projections.BeerOrderSummaryView;
+import guru.sfg.beer.order.service.web.model.BeerOrderSummaryDto;
+import org.mapstruct.Mapper;
+
+@Mapper(uses = {DateMapper.class})
+public interface BeerOrderSummaryMapper {
+
+    BeerOrderSummaryDto summaryToDto(BeerOrderSummaryView beerOrderSummaryView);
+}
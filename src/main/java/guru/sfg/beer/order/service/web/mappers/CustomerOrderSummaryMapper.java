@@ -0,0 +1,14 @@
+package guru.sfg.beer.order.service.web.mappers;
+
+import guru.sfg.beer.order.service.domain.CustomerOrderSummary;
+import guru.sfg.beer.order.service.web.model.CustomerOrderSummaryDto;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(uses = {DateMapper.class})
+public interface CustomerOrderSummaryMapper {
+
+    @Mapping(target = "totalOrders",
+            expression = "java(summary.getStatusCounts().values().stream().mapToLong(Long::longValue).sum())")
+    CustomerOrderSummaryDto summaryToDto(CustomerOrderSummary summary);
+}
@@ -20,6 +20,7 @@ package guru.sfg.beer.order.service.web.mappers;
 import org.springframework.stereotype.Component;
 
 import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 
@@ -31,9 +32,9 @@ public class DateMapper {
 
     public OffsetDateTime asOffsetDateTime(Timestamp ts){
         if (ts != null){
-            return OffsetDateTime.of(ts.toLocalDateTime().getYear(), ts.toLocalDateTime().getMonthValue(),
-                    ts.toLocalDateTime().getDayOfMonth(), ts.toLocalDateTime().getHour(), ts.toLocalDateTime().getMinute(),
-                    ts.toLocalDateTime().getSecond(), ts.toLocalDateTime().getNano(), ZoneOffset.UTC);
+            // convert straight from the epoch instant, avoids a LocalDateTime copy per field
+            return OffsetDateTime.of(LocalDateTime.ofEpochSecond(Math.floorDiv(ts.getTime(), 1000L), ts.getNanos(),
+                    ZoneOffset.UTC), ZoneOffset.UTC);
         } else {
             return null;
         }
@@ -41,7 +42,9 @@ public class DateMapper {
 
     public Timestamp asTimestamp(OffsetDateTime offsetDateTime){
         if(offsetDateTime != null) {
-            return Timestamp.valueOf(offsetDateTime.atZoneSameInstant(ZoneOffset.UTC).toLocalDateTime());
+            Timestamp timestamp = new Timestamp(offsetDateTime.toEpochSecond() * 1000L);
+            timestamp.setNanos(offsetDateTime.getNano());
+            return timestamp;
         } else {
             return null;
         }
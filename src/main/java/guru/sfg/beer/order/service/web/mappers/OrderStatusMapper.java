@@ -0,0 +1,15 @@
+package guru.sfg.beer.order.service.web.mappers;
+
+import guru.sfg.beer.order.service.repositories.projections.OrderChangeView;
+import guru.sfg.beer.order.service.repositories.projections.OrderStatusView;
+import guru.sfg.beer.order.service.web.model.OrderChangeDto;
+import guru.sfg.beer.order.service.web.model.OrderStatusDto;
+import org.mapstruct.Mapper;
+
+@Mapper(uses = {DateMapper.class})
+public interface OrderStatusMapper {
+
+    OrderStatusDto statusToDto(OrderStatusView orderStatusView);
+
+    OrderChangeDto changeToDto(OrderChangeView orderChangeView);
+}
@@ -0,0 +1,22 @@
+package guru.sfg.beer.order.service.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerOrderSummaryDto {
+    private UUID id;
+    private UUID customerId;
+    private String customerRef;
+    private String orderStatus;
+    private OffsetDateTime createdDate;
+    private OffsetDateTime lastModifiedDate;
+}
@@ -0,0 +1,17 @@
+package guru.sfg.beer.order.service.web.model;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+public class BeerOrderSummaryPagedList extends PageImpl<BeerOrderSummaryDto> {
+
+    public BeerOrderSummaryPagedList(List<BeerOrderSummaryDto> content, Pageable pageable, long total) {
+        super(content, pageable, total);
+    }
+
+    public BeerOrderSummaryPagedList(List<BeerOrderSummaryDto> content) {
+        super(content);
+    }
+}
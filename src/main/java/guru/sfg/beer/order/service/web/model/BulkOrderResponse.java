@@ -0,0 +1,30 @@
+package guru.sfg.beer.order.service.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOrderResponse {
+    private int created;
+
+    /**
+     * Orders the customer had already placed with the same customerRef, answered with the original order id.
+     */
+    private int duplicate;
+    private int rejected;
+
+    /**
+     * True when reading stopped early: at the order limit, on unreadable input, or when the customer's bulk
+     * rate limit or admission control turned orders away. Orders after the last result were not read and can be
+     * submitted again.
+     */
+    private boolean truncated;
+    private List<BulkOrderResult> results;
+}
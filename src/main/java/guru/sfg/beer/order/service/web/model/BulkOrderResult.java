@@ -0,0 +1,27 @@
+package guru.sfg.beer.order.service.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOrderResult {
+    public static final String CREATED = "CREATED";
+    public static final String DUPLICATE = "DUPLICATE";
+    public static final String REJECTED = "REJECTED";
+
+    /**
+     * Position of the order in the submitted stream, starting at 0.
+     */
+    private int index;
+    private String customerRef;
+    private UUID orderId;
+    private String status;
+    private String error;
+}
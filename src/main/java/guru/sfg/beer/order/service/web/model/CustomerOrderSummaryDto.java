@@ -0,0 +1,25 @@
+package guru.sfg.beer.order.service.web.model;
+
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerOrderSummaryDto {
+    private UUID customerId;
+    private Map<BeerOrderStatusEnum, Long> statusCounts;
+    private Long totalOrders;
+    private Long totalLines;
+    private Long totalQuantityOrdered;
+    private Long totalQuantityAllocated;
+    private OffsetDateTime lastOrderDate;
+}
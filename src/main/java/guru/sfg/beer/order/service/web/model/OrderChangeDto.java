@@ -0,0 +1,21 @@
+package guru.sfg.beer.order.service.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderChangeDto {
+    private UUID id;
+    private UUID customerId;
+    private String orderStatus;
+    private Long version;
+    private OffsetDateTime lastModifiedDate;
+}
@@ -0,0 +1,26 @@
+package guru.sfg.beer.order.service.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderChangeFeed {
+    private List<OrderChangeDto> changes;
+
+    /**
+     * Pass as {@code since} on the next call to continue after the last change returned.
+     */
+    private String nextToken;
+
+    /**
+     * True when there were no more changes to return at the time of the call.
+     */
+    private boolean caughtUp;
+}
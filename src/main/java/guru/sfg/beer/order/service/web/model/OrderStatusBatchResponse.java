@@ -0,0 +1,22 @@
+package guru.sfg.beer.order.service.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderStatusBatchResponse {
+    private List<OrderStatusDto> orders;
+
+    /**
+     * Requested ids that do not exist or belong to another customer.
+     */
+    private List<UUID> notFound;
+}
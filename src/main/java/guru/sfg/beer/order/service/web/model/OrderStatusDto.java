@@ -0,0 +1,20 @@
+package guru.sfg.beer.order.service.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderStatusDto {
+    private UUID id;
+    private String orderStatus;
+    private Long version;
+    private OffsetDateTime lastModifiedDate;
+}
@@ -0,0 +1,23 @@
+package guru.sfg.brewery.model.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sent by the inventory service when stock of a beer is added.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryReplenishedEvent {
+
+    private String upc;
+
+    /**
+     * Quantity on hand after the replenishment, null when not known.
+     */
+    private Integer quantityOnHand;
+}
@@ -0,0 +1,30 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the JMH benchmarks of a class inside the test JVM and checks their average time per operation.
+ */
+final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    static void assertAverageBelow(Class<?> benchmarkClass, long maxNanos) throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(benchmarkClass.getName())
+                // surefire's manifest only classpath is not visible to a forked JVM
+                .forks(0)
+                .build()).run();
+
+        assertThat(results).isNotEmpty().allSatisfy(result ->
+                assertThat(result.getPrimaryResult().getScore()).isLessThan(maxNanos));
+    }
+}
@@ -0,0 +1,75 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.ratelimit.CustomerRateLimiter;
+import guru.sfg.beer.order.service.ratelimit.RateLimitProperties;
+import guru.sfg.beer.order.service.ratelimit.RateLimitResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per request overhead of the customer rate limiter. Runs only with {@code -Dbenchmark=true} and fails if any
+ * benchmark averages a microsecond or more per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class CustomerRateLimiterBenchmarkTest {
+
+    static final long MAX_NANOS_PER_REQUEST = 1_000;
+    static final int CUSTOMERS = 10_000;
+
+    CustomerRateLimiter customerRateLimiter;
+
+    UUID[] customerIds;
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties rateLimitProperties = new RateLimitProperties();
+        rateLimitProperties.getDefaults().setPermitsPerSecond(1_000_000);
+        rateLimitProperties.getDefaults().setBurst(1_000);
+
+        customerRateLimiter = new CustomerRateLimiter(rateLimitProperties,
+                new BeerOrderMetrics(new SimpleMeterRegistry()));
+
+        customerIds = new UUID[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customerIds[i] = UUID.randomUUID();
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public RateLimitResult singleCustomer() {
+        return customerRateLimiter.tryConsume(customerIds[0]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public RateLimitResult manyCustomers() {
+        return customerRateLimiter.tryConsume(customerIds[ThreadLocalRandom.current().nextInt(CUSTOMERS)]);
+    }
+
+    @Test
+    void overheadIsBelowOneMicrosecond() throws Exception {
+        Benchmarks.assertAverageBelow(CustomerRateLimiterBenchmarkTest.class, MAX_NANOS_PER_REQUEST);
+    }
+}
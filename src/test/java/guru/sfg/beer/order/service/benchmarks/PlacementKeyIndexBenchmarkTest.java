@@ -0,0 +1,86 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.services.idempotency.PlacementKeyIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Placement overhead of the idempotency key check when it is answered in memory. Runs only with
+ * {@code -Dbenchmark=true} and fails if any benchmark averages a microsecond or more per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class PlacementKeyIndexBenchmarkTest {
+
+    static final long MAX_NANOS_PER_CHECK = 1_000;
+    static final int KEYS = 100_000;
+
+    PlacementKeyIndex placementKeyIndex;
+
+    UUID customerId = UUID.randomUUID();
+
+    String[] placedKeys;
+
+    String[] newKeys;
+
+    @Setup
+    public void setUp() {
+        BeerOrderRepository beerOrderRepository = mock(BeerOrderRepository.class);
+        when(beerOrderRepository.streamPlacementKeys()).thenReturn(Stream.empty());
+
+        placementKeyIndex = new PlacementKeyIndex(beerOrderRepository,
+                new BeerOrderMetrics(new SimpleMeterRegistry()), KEYS * 2, 0.01, KEYS * 2);
+        placementKeyIndex.load();
+
+        placedKeys = new String[KEYS];
+        newKeys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            placedKeys[i] = UUID.randomUUID().toString();
+            newKeys[i] = UUID.randomUUID().toString();
+            placementKeyIndex.record(customerId, placedKeys[i], UUID.randomUUID());
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<UUID> newKey() {
+        return placementKeyIndex.findExisting(customerId, newKeys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<UUID> recentKey() {
+        return placementKeyIndex.findExisting(customerId, placedKeys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    @Test
+    void overheadIsBelowOneMicrosecond() throws Exception {
+        Benchmarks.assertAverageBelow(PlacementKeyIndexBenchmarkTest.class, MAX_NANOS_PER_CHECK);
+    }
+}
@@ -0,0 +1,67 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import guru.sfg.beer.order.service.services.deadlines.TimerWheel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scheduling and cancelling a deadline in a wheel already holding {@link #PENDING} timers. Runs only
+ * with {@code -Dbenchmark=true} and fails if either averages a microsecond or more.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class TimerWheelBenchmarkTest {
+
+    static final long MAX_NANOS_PER_OPERATION = 1_000;
+    static final int PENDING = 1_000_000;
+    static final long HORIZON_MILLIS = TimeUnit.DAYS.toMillis(2);
+
+    TimerWheel<Integer> wheel;
+
+    @Setup
+    public void setUp() {
+        wheel = new TimerWheel<>(1000, 0);
+        Random random = new Random(42);
+
+        for (int key = 0; key < PENDING; key++) {
+            wheel.schedule(key, (long) (random.nextDouble() * HORIZON_MILLIS));
+        }
+    }
+
+    @Benchmark
+    public void reschedule() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        wheel.schedule(random.nextInt(PENDING), random.nextLong(HORIZON_MILLIS));
+    }
+
+    @Benchmark
+    public void cancelAndSchedule() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt(PENDING);
+
+        wheel.cancel(key);
+        wheel.schedule(key, random.nextLong(HORIZON_MILLIS));
+    }
+
+    @Test
+    void operationsAreBelowOneMicrosecond() throws Exception {
+        Benchmarks.assertAverageBelow(TimerWheelBenchmarkTest.class, MAX_NANOS_PER_OPERATION);
+    }
+}
@@ -0,0 +1,31 @@
+package guru.sfg.beer.order.service.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Token bucket semantics of the customer rate limiter.
+ */
+class CustomerRateLimiterTest {
+
+    @Test
+    void bucketAllowsBurstThenRefillsAtRate() {
+        long start = 0;
+        TokenBucket bucket = new TokenBucket(10, 3, start);
+
+        assertThat(bucket.tryConsume(start).getRemaining()).isEqualTo(2);
+        assertThat(bucket.tryConsume(start).getRemaining()).isEqualTo(1);
+        assertThat(bucket.tryConsume(start).getRemaining()).isEqualTo(0);
+
+        RateLimitResult rejected = bucket.tryConsume(start);
+        assertThat(rejected.isAllowed()).isFalse();
+        assertThat(rejected.getRetryAfterNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        long oneTokenLater = start + TimeUnit.MILLISECONDS.toNanos(100);
+        assertThat(bucket.tryConsume(oneTokenLater).isAllowed()).isTrue();
+        assertThat(bucket.tryConsume(oneTokenLater).isAllowed()).isFalse();
+    }
+}
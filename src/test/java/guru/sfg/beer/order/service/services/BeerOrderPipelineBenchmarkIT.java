@@ -0,0 +1,421 @@
+package guru.sfg.beer.order.service.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderLine;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.repositories.CustomerRepository;
+import guru.sfg.beer.order.service.services.beer.BeerServiceImpl;
+import guru.sfg.brewery.model.BeerDto;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.state.State;
+import org.springframework.statemachine.transition.Transition;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.jenspiegsa.wiremockextension.ManagedWireMockServer.with;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput benchmark for the order saga: pushes {@code benchmark.orders} orders through
+ * NEW -> ALLOCATED -> PICKED_UP against the embedded Artemis broker, the stand-in validation and
+ * allocation listeners and a WireMock beer service.
+ *
+ * Only runs when {@code -Dbenchmark=true} is set. Tunables (system properties):
+ * {@code benchmark.orders}, {@code benchmark.stub-latency-ms}, {@code benchmark.placement-threads},
+ * {@code benchmark.scaling-orders}, {@code benchmark.bulk-orders}, {@code benchmark.bulk-chunk-size}.
+ */
+@Slf4j
+@ExtendWith(WireMockExtension.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {
+        "sfg.brewery.beer-service-host=http://localhost:" + BeerOrderPipelineBenchmarkIT.WIREMOCK_PORT,
+        "sfg.test.stub-latency-ms=${benchmark.stub-latency-ms:0}",
+        "spring.jms.listener.concurrency=16",
+        "spring.jms.listener.max-concurrency=16",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "guru.sfg.beer.order.service.services.BeerOrderPipelineBenchmarkIT$CountingStatementInspector",
+        "logging.level.guru=info"
+})
+public class BeerOrderPipelineBenchmarkIT {
+
+    static final int WIREMOCK_PORT = 8084;
+    static final String UPC = "12345";
+
+    static final int ORDER_COUNT = Integer.getInteger("benchmark.orders", 2000);
+    static final int STUB_LATENCY_MS = Integer.getInteger("benchmark.stub-latency-ms", 0);
+    static final int PLACEMENT_THREADS = Integer.getInteger("benchmark.placement-threads", 8);
+    static final int SCALING_ORDER_COUNT = Integer.getInteger("benchmark.scaling-orders", 1000);
+    static final int[] RESULT_CONSUMER_STEPS = {1, 2, 4, 8, 16};
+    static final int BULK_ORDER_COUNT = Integer.getInteger("benchmark.bulk-orders", 5000);
+    static final int BULK_CHUNK_SIZE = Integer.getInteger("benchmark.bulk-chunk-size", 500);
+
+    @Autowired
+    BeerOrderManager beerOrderManager;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    WireMockServer wireMockServer;
+
+    @Autowired
+    TransitionRecorder transitionRecorder;
+
+    @Autowired
+    JmsListenerEndpointRegistry jmsListenerEndpointRegistry;
+
+    Customer testCustomer;
+
+    UUID beerId = UUID.randomUUID();
+
+    @TestConfiguration
+    static class BenchmarkConfig {
+        @Bean(destroyMethod = "stop")
+        public WireMockServer wireMockServer(){
+            WireMockServer server = with(wireMockConfig().port(WIREMOCK_PORT));
+            server.start();
+            return server;
+        }
+
+        @Bean
+        public TransitionRecorder transitionRecorder(){
+            return new TransitionRecorder();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        testCustomer = customerRepository.save(Customer.builder()
+                .customerName("Benchmark Customer")
+                .build());
+
+        BeerDto beerDto = BeerDto.builder().id(beerId).upc(UPC).build();
+
+        wireMockServer.stubFor(get(BeerServiceImpl.BEER_UPC_PATH_V1 + UPC)
+                .willReturn(okJson(objectMapper.writeValueAsString(beerDto)).withFixedDelay(STUB_LATENCY_MS)));
+
+        transitionRecorder.reset();
+    }
+
+    @Test
+    void benchmarkNewToPickedUp() throws Exception {
+        ListenerThreadSampler sampler = new ListenerThreadSampler();
+        CountingStatementInspector.STATEMENTS.set(0);
+
+        long start = System.nanoTime();
+
+        List<UUID> orderIds = placeOrders(ORDER_COUNT);
+        long placed = System.nanoTime();
+
+        awaitReached(BeerOrderStatusEnum.ALLOCATED, ORDER_COUNT);
+        long allocated = System.nanoTime();
+
+        pickUpOrders(orderIds);
+        awaitReached(BeerOrderStatusEnum.PICKED_UP, ORDER_COUNT);
+        long pickedUp = System.nanoTime();
+
+        long statements = CountingStatementInspector.STATEMENTS.get();
+
+        log.info("==== Order pipeline benchmark: {} orders, stub latency {} ms ====", ORDER_COUNT, STUB_LATENCY_MS);
+        log.info("placement:           {} orders/sec", rate(ORDER_COUNT, placed - start));
+        log.info("NEW -> ALLOCATED:    {} orders/sec", rate(ORDER_COUNT, allocated - start));
+        log.info("NEW -> PICKED_UP:    {} orders/sec", rate(ORDER_COUNT, pickedUp - start));
+        log.info("DB statements:       {} total, {} per order", statements, statements / (double) ORDER_COUNT);
+        transitionRecorder.latencies().forEach((transition, samples) ->
+                log.info("{} latency (ms): {}", transition, percentiles(samples)));
+        sampler.utilization(pickedUp - start).forEach((container, utilization) ->
+                log.info("listener {} utilization: {}%", container, String.format("%.1f", utilization * 100)));
+
+        assertEquals(ORDER_COUNT, transitionRecorder.reached(BeerOrderStatusEnum.PICKED_UP));
+    }
+
+    @Test
+    void benchmarkResultConsumerScaling() throws Exception {
+        log.info("==== Result consumer scaling: {} orders per step, stub latency {} ms ====",
+                SCALING_ORDER_COUNT, STUB_LATENCY_MS);
+
+        for (int consumers : RESULT_CONSUMER_STEPS) {
+            setResultConsumers(consumers);
+            transitionRecorder.reset();
+
+            long start = System.nanoTime();
+            placeOrders(SCALING_ORDER_COUNT);
+            awaitReached(BeerOrderStatusEnum.ALLOCATED, SCALING_ORDER_COUNT);
+            long allocated = System.nanoTime();
+
+            log.info("{} result consumers: NEW -> ALLOCATED {} orders/sec", consumers,
+                    rate(SCALING_ORDER_COUNT, allocated - start));
+
+            assertEquals(SCALING_ORDER_COUNT, transitionRecorder.reached(BeerOrderStatusEnum.ALLOCATED));
+        }
+    }
+
+    @Test
+    void benchmarkBulkPlacement() {
+        long singleStart = System.nanoTime();
+        for (int i = 0; i < BULK_ORDER_COUNT; i++) {
+            beerOrderManager.newBeerOrder(createBeerOrder());
+        }
+        long singleNanos = System.nanoTime() - singleStart;
+
+        CountingStatementInspector.STATEMENTS.set(0);
+        long bulkStart = System.nanoTime();
+        for (int placed = 0; placed < BULK_ORDER_COUNT; placed += BULK_CHUNK_SIZE) {
+            List<BeerOrder> chunk = new ArrayList<>(BULK_CHUNK_SIZE);
+            for (int i = placed; i < Math.min(placed + BULK_CHUNK_SIZE, BULK_ORDER_COUNT); i++) {
+                chunk.add(createBeerOrder());
+            }
+            beerOrderManager.newBeerOrders(chunk);
+        }
+        long bulkNanos = System.nanoTime() - bulkStart;
+
+        log.info("==== Placement: {} orders, bulk chunks of {} ====", BULK_ORDER_COUNT, BULK_CHUNK_SIZE);
+        log.info("single order path:   {} orders/sec", rate(BULK_ORDER_COUNT, singleNanos));
+        log.info("bulk path:           {} orders/sec ({} statements prepared)", rate(BULK_ORDER_COUNT, bulkNanos),
+                CountingStatementInspector.STATEMENTS.get());
+    }
+
+    void setResultConsumers(int consumers) {
+        for (String listenerId : List.of(JmsConfig.VALIDATE_ORDER_RESPONSE_LISTENER,
+                JmsConfig.ALLOCATE_ORDER_RESPONSE_LISTENER)) {
+            DefaultMessageListenerContainer container =
+                    (DefaultMessageListenerContainer) jmsListenerEndpointRegistry.getListenerContainer(listenerId);
+            container.setConcurrentConsumers(consumers);
+            container.setMaxConcurrentConsumers(consumers);
+        }
+    }
+
+    List<UUID> placeOrders(int count) throws InterruptedException {
+        List<UUID> orderIds = new ArrayList<>(count);
+        ExecutorService executor = Executors.newFixedThreadPool(PLACEMENT_THREADS);
+
+        for (int i = 0; i < count; i++) {
+            executor.execute(() -> {
+                BeerOrder beerOrder = createBeerOrder();
+                long placedAt = System.nanoTime();
+                BeerOrder savedBeerOrder = beerOrderManager.newBeerOrder(beerOrder);
+                transitionRecorder.placed(savedBeerOrder.getId(), placedAt);
+
+                synchronized (orderIds) {
+                    orderIds.add(savedBeerOrder.getId());
+                }
+            });
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        return orderIds;
+    }
+
+    void pickUpOrders(List<UUID> orderIds) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(PLACEMENT_THREADS);
+        orderIds.forEach(id -> executor.execute(() -> beerOrderManager.beerOrderPickedUp(id)));
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+    }
+
+    void awaitReached(BeerOrderStatusEnum status, int count) {
+        await().atMost(10, TimeUnit.MINUTES)
+                .pollInterval(100, TimeUnit.MILLISECONDS)
+                .until(() -> transitionRecorder.reached(status) >= count);
+    }
+
+    BeerOrder createBeerOrder(){
+        BeerOrder beerOrder = BeerOrder.builder()
+                .customer(testCustomer)
+                .build();
+
+        Set<BeerOrderLine> lines = new HashSet<>();
+        lines.add(BeerOrderLine.builder()
+                .beerId(beerId)
+                .upc(UPC)
+                .orderQuantity(1)
+                .beerOrder(beerOrder)
+                .build());
+
+        beerOrder.setBeerOrderLines(lines);
+
+        return beerOrder;
+    }
+
+    static String rate(int count, long nanos) {
+        return String.format("%.1f", count / (nanos / 1_000_000_000.0));
+    }
+
+    static String percentiles(Queue<Long> samples) {
+        long[] sorted = samples.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+
+        if (sorted.length == 0) {
+            return "no samples";
+        }
+
+        return String.format("n=%d p50=%.2f p90=%.2f p99=%.2f max=%.2f", sorted.length,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1_000_000.0);
+    }
+
+    static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    /**
+     * Records the time each order reaches each state by advising the state change interceptor.
+     */
+    @Aspect
+    static class TransitionRecorder {
+        private final Map<UUID, Map<BeerOrderStatusEnum, Long>> reachedAt = new ConcurrentHashMap<>();
+        private final Map<String, Queue<Long>> latencies = new ConcurrentHashMap<>();
+        private final Map<BeerOrderStatusEnum, AtomicInteger> reached = new EnumMap<>(BeerOrderStatusEnum.class);
+
+        TransitionRecorder() {
+            for (BeerOrderStatusEnum status : BeerOrderStatusEnum.values()) {
+                reached.put(status, new AtomicInteger());
+            }
+        }
+
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        @Before("execution(* guru.sfg.beer.order.service.sm.BeerOrderStateChangeInterceptor.preStateChange(..)) " +
+                "&& args(state, message, transition, stateMachine)")
+        public void record(State state, Object message, Transition transition, StateMachine stateMachine) {
+            long now = System.nanoTime();
+            UUID orderId = UUID.fromString(stateMachine.getId());
+            BeerOrderStatusEnum target = (BeerOrderStatusEnum) state.getId();
+
+            Map<BeerOrderStatusEnum, Long> times = reachedAt.computeIfAbsent(orderId, id -> new ConcurrentHashMap<>());
+
+            if (transition != null && transition.getSource() != null) {
+                BeerOrderStatusEnum source = (BeerOrderStatusEnum) transition.getSource().getId();
+                Long sourceReachedAt = times.get(source);
+
+                if (sourceReachedAt != null) {
+                    latencies.computeIfAbsent(source + " -> " + target, key -> new ConcurrentLinkedQueue<>())
+                            .add(now - sourceReachedAt);
+                }
+            }
+
+            times.put(target, now);
+            reached.get(target).incrementAndGet();
+        }
+
+        void placed(UUID orderId, long placedAt) {
+            reachedAt.computeIfAbsent(orderId, id -> new ConcurrentHashMap<>())
+                    .putIfAbsent(BeerOrderStatusEnum.NEW, placedAt);
+        }
+
+        int reached(BeerOrderStatusEnum status) {
+            return reached.get(status).get();
+        }
+
+        Map<String, Queue<Long>> latencies() {
+            return new TreeMap<>(latencies);
+        }
+
+        void reset() {
+            reachedAt.clear();
+            latencies.clear();
+            reached.values().forEach(counter -> counter.set(0));
+        }
+    }
+
+    /**
+     * Counts every SQL statement Hibernate prepares.
+     */
+    public static class CountingStatementInspector implements StatementInspector {
+        static final AtomicLong STATEMENTS = new AtomicLong();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.incrementAndGet();
+            return sql;
+        }
+    }
+
+    /**
+     * Samples CPU time of the JMS listener container threads, grouped by container.
+     */
+    static class ListenerThreadSampler {
+        private static final List<String> LISTENER_THREAD_MARKERS = List.of("JmsListenerEndpointContainer",
+                JmsConfig.VALIDATE_ORDER_RESPONSE_LISTENER, JmsConfig.ALLOCATE_ORDER_RESPONSE_LISTENER);
+
+        private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        private final Map<Long, Long> startCpuTimes = new HashMap<>();
+
+        ListenerThreadSampler() {
+            listenerThreads().forEach(thread -> startCpuTimes.put(thread.getId(), threadMXBean.getThreadCpuTime(thread.getId())));
+        }
+
+        Map<String, Double> utilization(long wallNanos) {
+            Map<String, Long> cpuByContainer = new TreeMap<>();
+            Map<String, Integer> threadsByContainer = new HashMap<>();
+
+            listenerThreads().forEach(thread -> {
+                long cpu = threadMXBean.getThreadCpuTime(thread.getId()) - startCpuTimes.getOrDefault(thread.getId(), 0L);
+                String container = thread.getName().replaceAll("-\\d+$", "");
+                cpuByContainer.merge(container, cpu, Long::sum);
+                threadsByContainer.merge(container, 1, Integer::sum);
+            });
+
+            Map<String, Double> utilization = new TreeMap<>();
+            cpuByContainer.forEach((container, cpu) ->
+                    utilization.put(container, cpu / ((double) wallNanos * threadsByContainer.get(container))));
+            return utilization;
+        }
+
+        private List<Thread> listenerThreads() {
+            List<Thread> threads = new ArrayList<>();
+            Thread.getAllStackTraces().keySet().forEach(thread -> {
+                if (LISTENER_THREAD_MARKERS.stream().anyMatch(marker -> thread.getName().contains(marker))) {
+                    threads.add(thread);
+                }
+            });
+            return threads;
+        }
+    }
+}
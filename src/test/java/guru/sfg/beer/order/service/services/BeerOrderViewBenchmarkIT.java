@@ -0,0 +1,165 @@
+package guru.sfg.beer.order.service.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderLine;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.CustomerRepository;
+import guru.sfg.beer.order.service.services.beer.BeerServiceImpl;
+import guru.sfg.beer.order.service.web.model.BeerOrderSummaryPagedList;
+import guru.sfg.brewery.model.BeerDto;
+import guru.sfg.brewery.model.BeerOrderPagedList;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import static com.github.jenspiegsa.wiremockextension.ManagedWireMockServer.with;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the latency of a 100 order page in the full view, which maps every line and looks up its beer,
+ * with the summary view, which is served from a header only projection.
+ *
+ * Only runs when {@code -Dbenchmark=true} is set. Tunables (system properties):
+ * {@code benchmark.page-iterations}, {@code benchmark.lines-per-order}, {@code benchmark.stub-latency-ms}.
+ */
+@Slf4j
+@ExtendWith(WireMockExtension.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {
+        "sfg.brewery.beer-service-host=http://localhost:" + BeerOrderViewBenchmarkIT.WIREMOCK_PORT,
+        "logging.level.guru=info"
+})
+public class BeerOrderViewBenchmarkIT {
+
+    static final int WIREMOCK_PORT = 8085;
+    static final String UPC = "12345";
+    static final int PAGE_SIZE = 100;
+
+    static final int ITERATIONS = Integer.getInteger("benchmark.page-iterations", 50);
+    static final int LINES_PER_ORDER = Integer.getInteger("benchmark.lines-per-order", 3);
+    static final int STUB_LATENCY_MS = Integer.getInteger("benchmark.stub-latency-ms", 0);
+
+    @Autowired
+    BeerOrderService beerOrderService;
+
+    @Autowired
+    BeerOrderRepository beerOrderRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    WireMockServer wireMockServer;
+
+    Customer testCustomer;
+
+    @TestConfiguration
+    static class BenchmarkConfig {
+        @Bean(destroyMethod = "stop")
+        public WireMockServer wireMockServer(){
+            WireMockServer server = with(wireMockConfig().port(WIREMOCK_PORT));
+            server.start();
+            return server;
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        testCustomer = customerRepository.save(Customer.builder()
+                .customerName("View Benchmark Customer")
+                .build());
+
+        BeerDto beerDto = BeerDto.builder().id(UUID.randomUUID()).upc(UPC).beerName("Mango Bobs").build();
+
+        wireMockServer.stubFor(get(BeerServiceImpl.BEER_UPC_PATH_V1 + UPC)
+                .willReturn(okJson(objectMapper.writeValueAsString(beerDto)).withFixedDelay(STUB_LATENCY_MS)));
+
+        // saved directly in a settled status, so the saga leaves them alone
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            beerOrderRepository.save(createBeerOrder(i));
+        }
+        beerOrderRepository.flush();
+    }
+
+    @Test
+    void benchmarkPageViews() {
+        PageRequest pageRequest = PageRequest.of(0, PAGE_SIZE);
+        UUID customerId = testCustomer.getId();
+
+        long fullNanos = timePage(() -> beerOrderService.listOrders(customerId, pageRequest),
+                BeerOrderPagedList::getNumberOfElements);
+
+        wireMockServer.resetRequests();
+        long summaryNanos = timePage(() -> beerOrderService.listOrderSummaries(customerId, pageRequest),
+                BeerOrderSummaryPagedList::getNumberOfElements);
+        int summaryBeerCalls = wireMockServer.findAll(anyRequestedFor(urlPathMatching(".*"))).size();
+
+        log.info("==== Order page views: {} orders x {} lines, stub latency {} ms, {} pages ====",
+                PAGE_SIZE, LINES_PER_ORDER, STUB_LATENCY_MS, ITERATIONS);
+        log.info("view=full:    {} ms per page", String.format("%.2f", fullNanos / 1_000_000.0));
+        log.info("view=summary: {} ms per page", String.format("%.2f", summaryNanos / 1_000_000.0));
+
+        assertEquals(0, summaryBeerCalls);
+    }
+
+    <T> long timePage(Supplier<T> page, ToIntFunction<T> size) {
+        // warm up
+        for (int i = 0; i < Math.max(1, ITERATIONS / 5); i++) {
+            assertEquals(PAGE_SIZE, size.applyAsInt(page.get()));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(PAGE_SIZE, size.applyAsInt(page.get()));
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    BeerOrder createBeerOrder(int index){
+        BeerOrder beerOrder = BeerOrder.builder()
+                .customer(testCustomer)
+                .customerRef("ref-" + index)
+                .orderStatus(BeerOrderStatusEnum.PICKED_UP)
+                .build();
+
+        Set<BeerOrderLine> lines = new HashSet<>();
+        for (int i = 0; i < LINES_PER_ORDER; i++) {
+            lines.add(BeerOrderLine.builder()
+                    .upc(UPC)
+                    .orderQuantity(1)
+                    .quantityAllocated(1)
+                    .beerOrder(beerOrder)
+                    .build());
+        }
+
+        beerOrder.setBeerOrderLines(lines);
+
+        return beerOrder;
+    }
+}
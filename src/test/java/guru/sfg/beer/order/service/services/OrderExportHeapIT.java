@@ -0,0 +1,154 @@
+package guru.sfg.beer.order.service.services;
+
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.repositories.CustomerRepository;
+import guru.sfg.beer.order.service.services.export.OrderExportFormat;
+import guru.sfg.beer.order.service.services.export.OrderExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exports {@code benchmark.export-orders} generated orders and checks that heap in use after GC stays flat
+ * while the export runs.
+ *
+ * Only runs when {@code -Dbenchmark=true} is set. Tunables (system properties):
+ * {@code benchmark.export-orders}, {@code benchmark.export-max-heap-growth-mb}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = "logging.level.guru=info")
+public class OrderExportHeapIT {
+
+    static final int ORDER_COUNT = Integer.getInteger("benchmark.export-orders", 1_000_000);
+    static final long MAX_HEAP_GROWTH_MB = Long.getLong("benchmark.export-max-heap-growth-mb", 64);
+    static final int INSERT_BATCH = 10_000;
+    static final long SAMPLE_EVERY_BYTES = 32L * 1024 * 1024;
+
+    static final Timestamp PERIOD_START = Timestamp.valueOf("2020-01-01 00:00:00");
+    static final Timestamp PERIOD_END = Timestamp.valueOf("2021-01-01 00:00:00");
+
+    @Autowired
+    OrderExportService orderExportService;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Customer testCustomer;
+
+    @BeforeEach
+    void setUp() {
+        testCustomer = customerRepository.save(Customer.builder()
+                .customerName("Export Customer")
+                .build());
+
+        generateOrders();
+    }
+
+    @Test
+    void exportRunsInConstantHeap() throws Exception {
+        for (OrderExportFormat format : OrderExportFormat.values()) {
+            HeapSamplingOutputStream out = new HeapSamplingOutputStream();
+
+            long start = System.nanoTime();
+            long exported = orderExportService.exportOrders(PERIOD_START, PERIOD_END, format, out);
+            long elapsed = System.nanoTime() - start;
+
+            long growthMb = (out.maxUsed - out.baselineUsed) / (1024 * 1024);
+
+            log.info("==== {} export: {} orders, {} MB written in {} s, heap growth {} MB over {} samples ====",
+                    format, exported, out.written / (1024 * 1024), String.format("%.1f", elapsed / 1e9),
+                    growthMb, out.samples);
+
+            assertEquals(ORDER_COUNT, exported);
+            assertTrue(growthMb <= MAX_HEAP_GROWTH_MB,
+                    "heap grew by " + growthMb + " MB while exporting " + format);
+        }
+    }
+
+    void generateOrders() {
+        long periodMillis = PERIOD_END.getTime() - PERIOD_START.getTime();
+        int statuses = BeerOrderStatusEnum.values().length;
+
+        for (int batchStart = 0; batchStart < ORDER_COUNT; batchStart += INSERT_BATCH) {
+            List<Object[]> orders = new ArrayList<>(INSERT_BATCH);
+            List<Object[]> lines = new ArrayList<>(INSERT_BATCH);
+
+            for (int i = batchStart; i < Math.min(batchStart + INSERT_BATCH, ORDER_COUNT); i++) {
+                String orderId = UUID.randomUUID().toString();
+                Timestamp created = new Timestamp(PERIOD_START.getTime() + (periodMillis / ORDER_COUNT) * i);
+
+                orders.add(new Object[]{orderId, 0L, created, created, "ref-" + i, testCustomer.getId().toString(),
+                        i % statuses});
+                lines.add(new Object[]{UUID.randomUUID().toString(), 0L, created, created, orderId, "0631234200036",
+                        1 + i % 10, i % 10});
+            }
+
+            jdbcTemplate.batchUpdate("insert into beer_order (id, version, created_date, last_modified_date, " +
+                    "customer_ref, customer_id, order_status) values (?, ?, ?, ?, ?, ?, ?)", orders);
+            jdbcTemplate.batchUpdate("insert into beer_order_line (id, version, created_date, last_modified_date, " +
+                    "beer_order_id, upc, order_quantity, quantity_allocated) values (?, ?, ?, ?, ?, ?, ?, ?)", lines);
+        }
+    }
+
+    /**
+     * Discards what is written, sampling heap in use after a GC every {@link #SAMPLE_EVERY_BYTES}.
+     */
+    static class HeapSamplingOutputStream extends OutputStream {
+        private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        private final long baselineUsed;
+        private long maxUsed;
+        private long written;
+        private long nextSampleAt = SAMPLE_EVERY_BYTES;
+        private int samples;
+
+        HeapSamplingOutputStream() {
+            baselineUsed = usedAfterGc();
+            maxUsed = baselineUsed;
+        }
+
+        @Override
+        public void write(int b) {
+            written++;
+            sampleIfDue();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            written += len;
+            sampleIfDue();
+        }
+
+        private void sampleIfDue() {
+            if (written >= nextSampleAt) {
+                nextSampleAt += SAMPLE_EVERY_BYTES;
+                samples++;
+                maxUsed = Math.max(maxUsed, usedAfterGc());
+            }
+        }
+
+        private long usedAfterGc() {
+            System.gc();
+            return memoryMXBean.getHeapMemoryUsage().getUsed();
+        }
+    }
+}
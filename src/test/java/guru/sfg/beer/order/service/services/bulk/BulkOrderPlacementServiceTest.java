@@ -0,0 +1,160 @@
+package guru.sfg.beer.order.service.services.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.sfg.beer.order.service.admission.AdmissionDecision;
+import guru.sfg.beer.order.service.admission.OrderAdmissionController;
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.ratelimit.CustomerRateLimiter;
+import guru.sfg.beer.order.service.ratelimit.RateLimitProperties;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.CustomerRepository;
+import guru.sfg.beer.order.service.repositories.projections.PlacedOrderKey;
+import guru.sfg.beer.order.service.services.BeerOrderManager;
+import guru.sfg.beer.order.service.services.idempotency.PlacementKeyIndex;
+import guru.sfg.beer.order.service.web.mappers.BeerOrderMapper;
+import guru.sfg.beer.order.service.web.model.BulkOrderResponse;
+import guru.sfg.beer.order.service.web.model.BulkOrderResult;
+import guru.sfg.brewery.model.BeerOrderDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bulk placement with the shipped rate limits: a B2B sized request is placed whole, and the bulk budget
+ * only cuts in once it is spent. A chunk that loses a key to a concurrent request keeps the rest.
+ */
+class BulkOrderPlacementServiceTest {
+
+    static final int CHUNK_SIZE = 500;
+    static final int MAX_ORDERS = 5_000;
+
+    UUID customerId = UUID.randomUUID();
+
+    BeerOrderManager beerOrderManager;
+    BeerOrderRepository beerOrderRepository;
+    RateLimitProperties rateLimitProperties;
+    BulkOrderPlacementService bulkOrderPlacementService;
+
+    @BeforeEach
+    void setUp() {
+        Customer customer = Customer.builder().id(customerId).build();
+        CustomerRepository customerRepository = mock(CustomerRepository.class);
+        when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
+
+        BeerOrderMapper beerOrderMapper = mock(BeerOrderMapper.class);
+        when(beerOrderMapper.dtoToBeerOrder(any())).thenAnswer(invocation -> {
+            BeerOrder beerOrder = new BeerOrder();
+            beerOrder.setCustomerRef(invocation.<BeerOrderDto>getArgument(0).getCustomerRef());
+            return beerOrder;
+        });
+
+        beerOrderManager = mock(BeerOrderManager.class);
+        when(beerOrderManager.newBeerOrders(any())).thenAnswer(invocation -> {
+            List<BeerOrder> beerOrders = invocation.getArgument(0);
+            beerOrders.forEach(beerOrder -> beerOrder.setId(UUID.randomUUID()));
+            return beerOrders;
+        });
+
+        beerOrderRepository = mock(BeerOrderRepository.class);
+
+        PlacementKeyIndex placementKeyIndex = mock(PlacementKeyIndex.class);
+        when(placementKeyIndex.findExisting(any(), anyString())).thenReturn(Optional.empty());
+
+        OrderAdmissionController orderAdmissionController = mock(OrderAdmissionController.class);
+        when(orderAdmissionController.tryAdmit(anyInt())).thenReturn(AdmissionDecision.ADMITTED);
+
+        // the limits the application ships with
+        rateLimitProperties = new RateLimitProperties();
+        CustomerRateLimiter customerRateLimiter = new CustomerRateLimiter(rateLimitProperties,
+                new BeerOrderMetrics(new SimpleMeterRegistry()));
+
+        bulkOrderPlacementService = new BulkOrderPlacementService(beerOrderManager, customerRepository,
+                beerOrderRepository, beerOrderMapper, new ObjectMapper(), placementKeyIndex, customerRateLimiter,
+                rateLimitProperties, orderAdmissionController, CHUNK_SIZE, MAX_ORDERS);
+    }
+
+    @Test
+    void hundredsOfOrdersArePlacedUnderDefaultLimits() throws Exception {
+        BulkOrderResponse response = bulkOrderPlacementService.placeOrders(customerId, ndjson(1_200));
+
+        assertThat(response.isTruncated()).isFalse();
+        assertThat(response.getCreated()).isEqualTo(1_200);
+        assertThat(response.getResults()).hasSize(1_200);
+    }
+
+    @Test
+    void spentBulkBudgetStopsReadingAtTheChunk() throws Exception {
+        rateLimitProperties.getBulk().setBurst(CHUNK_SIZE * 2);
+
+        BulkOrderResponse response = bulkOrderPlacementService.placeOrders(customerId, ndjson(CHUNK_SIZE * 3));
+
+        assertThat(response.isTruncated()).isTrue();
+        assertThat(response.getCreated()).isEqualTo(CHUNK_SIZE * 2);
+        assertThat(response.getRejected()).isEqualTo(CHUNK_SIZE);
+    }
+
+    @Test
+    void keysPlacedConcurrentlyAreDuplicatesAndTheRestIsSaved() throws Exception {
+        UUID placedOrderId = UUID.randomUUID();
+        PlacedOrderKey placedOrderKey = mock(PlacedOrderKey.class);
+        when(placedOrderKey.getId()).thenReturn(placedOrderId);
+        when(placedOrderKey.getPlacementKey()).thenReturn("ref-1");
+        when(beerOrderRepository.findByCustomerIdAndPlacementKeyIn(eq(customerId), any()))
+                .thenReturn(List.of(placedOrderKey));
+
+        Answer<List<BeerOrder>> save = invocation -> {
+            List<BeerOrder> beerOrders = invocation.getArgument(0);
+            beerOrders.forEach(beerOrder -> beerOrder.setId(UUID.randomUUID()));
+            return beerOrders;
+        };
+        when(beerOrderManager.newBeerOrders(any()))
+                .thenThrow(new DataIntegrityViolationException("uk_beer_order_placement_key"))
+                .thenAnswer(save);
+
+        BulkOrderResponse response = bulkOrderPlacementService.placeOrders(customerId, ndjson(3));
+
+        assertThat(response.getCreated()).isEqualTo(2);
+        assertThat(response.getDuplicate()).isEqualTo(1);
+        assertThat(response.getResults().get(1).getStatus()).isEqualTo(BulkOrderResult.DUPLICATE);
+        assertThat(response.getResults().get(1).getOrderId()).isEqualTo(placedOrderId);
+        assertThat(response.getResults().get(0).getOrderId()).isNotNull();
+    }
+
+    @Test
+    void failedChunkIsRejectedWithoutDatabaseDetail() throws Exception {
+        when(beerOrderManager.newBeerOrders(any()))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement; SQL [insert ...]"));
+
+        BulkOrderResponse response = bulkOrderPlacementService.placeOrders(customerId, ndjson(2));
+
+        assertThat(response.getRejected()).isEqualTo(2);
+        assertThat(response.getResults()).allSatisfy(result ->
+                assertThat(result.getError()).isEqualTo(BulkOrderPlacementService.SAVE_FAILED));
+    }
+
+    static ByteArrayInputStream ndjson(int orders) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < orders; i++) {
+            body.append("{\"customerRef\":\"ref-").append(i).append("\"}\n");
+        }
+        return new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
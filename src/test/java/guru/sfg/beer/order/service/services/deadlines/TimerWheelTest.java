@@ -0,0 +1,119 @@
+package guru.sfg.beer.order.service.services.deadlines;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Expiry semantics of the hierarchical timer wheel.
+ */
+class TimerWheelTest {
+
+    @Test
+    void expiresAtDeadlineAndNotBefore() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 1_000);
+
+        wheel.schedule("a", 1_055);
+        wheel.schedule("b", 1_500);
+
+        assertThat(wheel.poll(1_050, 10)).isEmpty();
+        assertThat(wheel.poll(1_060, 10)).containsExactly("a");
+        assertThat(wheel.poll(1_499, 10)).isEmpty();
+        assertThat(wheel.poll(1_500, 10)).containsExactly("b");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cancelledAndRescheduledDeadlinesDoNotFireEarly() {
+        TimerWheel<String> wheel = new TimerWheel<>(1, 0);
+
+        wheel.schedule("cancelled", 100);
+        wheel.schedule("moved", 100);
+        assertThat(wheel.cancel("cancelled")).isTrue();
+        assertThat(wheel.cancel("unknown")).isFalse();
+        wheel.schedule("moved", 5_000);
+
+        assertThat(wheel.poll(4_999, 10)).isEmpty();
+        assertThat(wheel.poll(5_000, 10)).containsExactly("moved");
+    }
+
+    @Test
+    void pastDeadlineExpiresOnNextPoll() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 60_000);
+
+        wheel.schedule("overdue", 1_000);
+
+        assertThat(wheel.poll(60_000, 10)).containsExactly("overdue");
+    }
+
+    @Test
+    void clearedDeadlinesDoNotExpire() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 0);
+        wheel.schedule("soon", 1_000);
+        wheel.schedule("later", 10_000_000);
+
+        wheel.clear();
+        wheel.schedule("after-clear", 2_000);
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.poll(20_000_000, 10)).containsExactly("after-clear");
+    }
+
+    @Test
+    void pollReturnsAtMostMaxAndKeepsTheRest() {
+        TimerWheel<Integer> wheel = new TimerWheel<>(1, 0);
+        for (int key = 0; key < 25; key++) {
+            wheel.schedule(key, 10);
+        }
+
+        assertThat(wheel.poll(10, 10)).hasSize(10);
+        assertThat(wheel.poll(10, 10)).hasSize(10);
+        assertThat(wheel.poll(10, 10)).hasSize(5);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void deadlinesOnEveryLevelExpireWithinATick() {
+        long tick = 1000;
+        TimerWheel<Integer> wheel = new TimerWheel<>(tick, 0);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int key = 0; key < 50_000; key++) {
+            // up to 64^4 ticks out, so every level is used
+            long deadline = (long) (random.nextDouble() * tick * (1L << 24));
+            wheel.schedule(key, deadline);
+            deadlines.put(key, deadline);
+        }
+
+        List<Integer> expired = new ArrayList<>();
+        for (long now = 0; now <= tick * (1L << 24) + tick; now += 60 * tick) {
+            for (Integer key : wheel.poll(now, Integer.MAX_VALUE)) {
+                long deadline = deadlines.remove(key);
+                assertThat(deadline).isLessThanOrEqualTo(now);
+                assertThat(now - deadline).isLessThan(61 * tick);
+                expired.add(key);
+            }
+        }
+
+        assertThat(expired).hasSize(50_000);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void deadlineBeyondTheTopLevelIsNotExpiredEarly() {
+        TimerWheel<String> wheel = new TimerWheel<>(1, 0);
+        long deadline = TimerWheel.MAX_TICKS + 12_345;
+
+        wheel.schedule("far", deadline);
+
+        assertThat(wheel.poll(deadline - 1, 10)).isEmpty();
+        assertThat(wheel.poll(deadline, 10)).containsExactly("far");
+    }
+}
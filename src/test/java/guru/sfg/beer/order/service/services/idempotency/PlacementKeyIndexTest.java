@@ -0,0 +1,87 @@
+package guru.sfg.beer.order.service.services.idempotency;
+
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bloom filter and index semantics of the idempotency key check.
+ */
+class PlacementKeyIndexTest {
+
+    static final int KEYS = 100_000;
+
+    UUID customerId = UUID.randomUUID();
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        BloomFilter bloomFilter = new BloomFilter(KEYS, 0.01);
+
+        for (int i = 0; i < KEYS; i++) {
+            bloomFilter.put("placed-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < KEYS; i++) {
+            assertThat(bloomFilter.mightContain("placed-" + i)).isTrue();
+
+            if (bloomFilter.mightContain("new-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives).isLessThan(KEYS / 50);
+    }
+
+    @Test
+    void onlyKeysTheFilterMayContainAreLookedUp() {
+        BeerOrderRepository beerOrderRepository = mockRepository();
+        PlacementKeyIndex index = newIndex(beerOrderRepository);
+        UUID orderId = UUID.randomUUID();
+
+        index.load();
+        assertThat(index.findExisting(customerId, "ref-1")).isEmpty();
+        verify(beerOrderRepository, never()).findIdByCustomerIdAndPlacementKey(any(), anyString());
+
+        index.record(customerId, "ref-1", orderId);
+        assertThat(index.findExisting(customerId, "ref-1")).contains(orderId);
+        assertThat(index.findExisting(UUID.randomUUID(), "ref-1")).isEmpty();
+    }
+
+    @Test
+    void everyKeyIsLookedUpUntilLoaded() {
+        BeerOrderRepository beerOrderRepository = mockRepository();
+        UUID orderId = UUID.randomUUID();
+        when(beerOrderRepository.findIdByCustomerIdAndPlacementKey(customerId, "ref-2"))
+                .thenReturn(Optional.of(orderId));
+
+        PlacementKeyIndex index = newIndex(beerOrderRepository);
+
+        assertThat(index.findExisting(customerId, "ref-2")).contains(orderId);
+    }
+
+    static BeerOrderRepository mockRepository() {
+        BeerOrderRepository beerOrderRepository = mock(BeerOrderRepository.class);
+        when(beerOrderRepository.streamPlacementKeys()).thenReturn(Stream.empty());
+        when(beerOrderRepository.findIdByCustomerIdAndPlacementKey(any(), anyString())).thenReturn(Optional.empty());
+        return beerOrderRepository;
+    }
+
+    static PlacementKeyIndex newIndex(BeerOrderRepository beerOrderRepository) {
+        return new PlacementKeyIndex(beerOrderRepository, new BeerOrderMetrics(new SimpleMeterRegistry()),
+                KEYS * 2, 0.01, KEYS * 2);
+    }
+}
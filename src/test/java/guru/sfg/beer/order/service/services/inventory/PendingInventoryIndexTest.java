@@ -0,0 +1,64 @@
+package guru.sfg.beer.order.service.services.inventory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PendingInventoryIndexTest {
+
+    static final String UPC = "0631234200036";
+    static final String OTHER_UPC = "0631234300019";
+
+    PendingInventoryIndex index;
+
+    UUID oldest = UUID.randomUUID();
+    UUID middle = UUID.randomUUID();
+    UUID newest = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        index = new PendingInventoryIndex();
+
+        // added out of placement order
+        index.put(newest, 3_000, UPC, 2);
+        index.put(oldest, 1_000, UPC, 5);
+        index.put(middle, 2_000, UPC, 10);
+        index.put(middle, 2_000, OTHER_UPC, 1);
+    }
+
+    @Test
+    void selectsOldestFirstUpToMax() {
+        assertThat(index.oldestFitting(UPC, null, 2)).containsExactly(oldest, middle);
+        assertThat(index.oldestFitting(UPC, null, 10)).containsExactly(oldest, middle, newest);
+    }
+
+    @Test
+    void stopsAtFirstOrderThatDoesNotFit() {
+        // the newest order would fit in what is left, but is not let past the middle one
+        assertThat(index.oldestFitting(UPC, 8, 10)).containsExactly(oldest);
+        assertThat(index.oldestFitting(UPC, 15, 10)).containsExactly(oldest, middle);
+    }
+
+    @Test
+    void alwaysSelectsTheOldestOrder() {
+        assertThat(index.oldestFitting(UPC, 1, 10)).containsExactly(oldest);
+    }
+
+    @Test
+    void removedOrderLeavesEveryUpc() {
+        index.remove(middle);
+
+        assertThat(index.oldestFitting(UPC, null, 10)).containsExactly(oldest, newest);
+        assertThat(index.oldestFitting(OTHER_UPC, null, 10)).isEmpty();
+        assertThat(index.upcs()).containsExactly(UPC);
+        assertThat(index.orderCount()).isEqualTo(2);
+    }
+
+    @Test
+    void unknownUpcSelectsNothing() {
+        assertThat(index.oldestFitting("unknown", null, 10)).isEmpty();
+    }
+}
@@ -0,0 +1,133 @@
+package guru.sfg.beer.order.service.services.messaging;
+
+import guru.sfg.beer.order.service.domain.ProcessedMessage;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.repositories.ProcessedMessageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jms.support.JmsHeaders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Which deliveries of a result message reach the handler, and where duplicates are recognised.
+ */
+class MessageDeduplicatorTest {
+
+    static final String QUEUE = "validate-order-response";
+    static final Consumer<Runnable> IN_PLACE = Runnable::run;
+
+    ProcessedMessageRepository processedMessageRepository;
+    MeterRegistry meterRegistry;
+    SimpleTransactionStatus transactionStatus;
+    MessageDeduplicator messageDeduplicator;
+
+    AtomicInteger handled = new AtomicInteger();
+    Runnable handler = handled::incrementAndGet;
+
+    @BeforeEach
+    void setUp() {
+        processedMessageRepository = mock(ProcessedMessageRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        transactionStatus = new SimpleTransactionStatus();
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+
+        messageDeduplicator = new MessageDeduplicator(processedMessageRepository, new BeerOrderMetrics(meterRegistry),
+                new TransactionTemplate(transactionManager), 1_000, Duration.ofDays(7));
+    }
+
+    @Test
+    void firstDeliveryIsHandledAndRecordedWithoutAStoreRead() {
+        messageDeduplicator.handleOnce(QUEUE, headers("id-1", false), IN_PLACE, handler);
+
+        assertThat(handled).hasValue(1);
+        verify(processedMessageRepository).saveAndFlush(any(ProcessedMessage.class));
+        verify(processedMessageRepository, never()).existsById(anyString());
+        assertThat(transactionStatus.isRollbackOnly()).isFalse();
+    }
+
+    @Test
+    void repeatedDeliveryIsDroppedFromMemory() {
+        messageDeduplicator.handleOnce(QUEUE, headers("id-2", false), IN_PLACE, handler);
+        messageDeduplicator.handleOnce(QUEUE, headers("id-2", true), IN_PLACE, handler);
+
+        assertThat(handled).hasValue(1);
+        verify(processedMessageRepository, never()).existsById(anyString());
+        assertThat(duplicates(MessageDeduplicator.MEMORY)).isEqualTo(1);
+    }
+
+    @Test
+    void redeliveryHandledBeforeARestartIsDroppedFromTheStore() {
+        when(processedMessageRepository.existsById("id-3")).thenReturn(true);
+
+        messageDeduplicator.handleOnce(QUEUE, headers("id-3", true), IN_PLACE, handler);
+        // now remembered, so the store is not asked again
+        messageDeduplicator.handleOnce(QUEUE, headers("id-3", true), IN_PLACE, handler);
+
+        assertThat(handled).hasValue(0);
+        verify(processedMessageRepository, times(1)).existsById("id-3");
+        verify(processedMessageRepository, never()).saveAndFlush(any());
+        assertThat(duplicates(MessageDeduplicator.STORE)).isEqualTo(1);
+        assertThat(duplicates(MessageDeduplicator.MEMORY)).isEqualTo(1);
+    }
+
+    @Test
+    void redeliveryNotInTheStoreIsHandled() {
+        messageDeduplicator.handleOnce(QUEUE, headers("id-4", true), IN_PLACE, handler);
+
+        assertThat(handled).hasValue(1);
+        verify(processedMessageRepository).existsById("id-4");
+    }
+
+    @Test
+    void concurrentDuplicateIsRolledBackAndDropped() {
+        when(processedMessageRepository.saveAndFlush(any(ProcessedMessage.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        messageDeduplicator.handleOnce(QUEUE, headers("id-5", false), IN_PLACE, handler);
+
+        assertThat(handled).hasValue(0);
+        assertThat(transactionStatus.isRollbackOnly()).isTrue();
+        assertThat(duplicates(MessageDeduplicator.STORE)).isEqualTo(1);
+    }
+
+    @Test
+    void messageWithoutAnIdIsAlwaysHandled() {
+        messageDeduplicator.handleOnce(QUEUE, Map.of(), IN_PLACE, handler);
+        messageDeduplicator.handleOnce(QUEUE, Map.of(), IN_PLACE, handler);
+
+        assertThat(handled).hasValue(2);
+        verify(processedMessageRepository, never()).saveAndFlush(any());
+    }
+
+    private double duplicates(String source) {
+        return meterRegistry.get(BeerOrderMetrics.PREFIX + ".jms.duplicates")
+                .tag("queue", QUEUE)
+                .tag("source", source)
+                .counter().count();
+    }
+
+    private static Map<String, Object> headers(String messageId, boolean redelivered) {
+        return Map.of(JmsHeaders.MESSAGE_ID, messageId, JmsHeaders.REDELIVERED, redelivered);
+    }
+}
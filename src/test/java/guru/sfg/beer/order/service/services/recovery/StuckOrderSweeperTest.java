@@ -0,0 +1,177 @@
+package guru.sfg.beer.order.service.services.recovery;
+
+import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.projections.StuckOrderRef;
+import guru.sfg.beer.order.service.services.BeerOrderManager;
+import guru.sfg.beer.order.service.services.messaging.OrderMessageSender;
+import guru.sfg.beer.order.service.services.scheduling.FairOrderDispatcher;
+import guru.sfg.beer.order.service.services.scheduling.SchedulerLeases;
+import guru.sfg.beer.order.service.web.mappers.BeerOrderMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Re-drive decisions and the keyset scan of the stuck order sweeper, against a mocked repository.
+ */
+class StuckOrderSweeperTest {
+
+    static final int MAX_ATTEMPTS = 3;
+    static final int BATCH_SIZE = 2;
+    static final Timestamp EPOCH = new Timestamp(0);
+    static final UUID NO_ID = new UUID(0, 0);
+
+    BeerOrderRepository beerOrderRepository;
+    BeerOrderManager beerOrderManager;
+    OrderMessageSender orderMessageSender;
+    SchedulerLeases schedulerLeases;
+    FairOrderDispatcher fairOrderDispatcher;
+    StuckOrderSweeper stuckOrderSweeper;
+
+    @BeforeEach
+    void setUp() {
+        beerOrderRepository = mock(BeerOrderRepository.class);
+        when(beerOrderRepository.findAllWithLinesByIdIn(any())).thenReturn(List.of());
+
+        beerOrderManager = mock(BeerOrderManager.class);
+        orderMessageSender = mock(OrderMessageSender.class);
+        fairOrderDispatcher = mock(FairOrderDispatcher.class);
+
+        schedulerLeases = mock(SchedulerLeases.class);
+        when(schedulerLeases.tryAcquire(eq(StuckOrderSweeper.LEASE_NAME), any())).thenReturn(true);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        // plenty of re-send permits, so only the batch size limits a scan
+        stuckOrderSweeper = new StuckOrderSweeper(beerOrderRepository, beerOrderManager, mock(BeerOrderMapper.class),
+                orderMessageSender, schedulerLeases, fairOrderDispatcher,
+                new BeerOrderMetrics(new SimpleMeterRegistry()), new TransactionTemplate(transactionManager),
+                Duration.ofMinutes(5), Duration.ofMinutes(5), MAX_ATTEMPTS, BATCH_SIZE, 1_000, 1_000_000);
+    }
+
+    @Test
+    void pendingOrderIsResentUntilItsAttemptsAreUsedUp() {
+        BeerOrder retried = order(BeerOrderStatusEnum.VALIDATION_PENDING, MAX_ATTEMPTS - 1);
+        BeerOrder exhausted = order(BeerOrderStatusEnum.VALIDATION_PENDING, MAX_ATTEMPTS);
+        stuck(BeerOrderStatusEnum.VALIDATION_PENDING, EPOCH, NO_ID, retried, exhausted);
+
+        stuckOrderSweeper.sweep();
+
+        assertThat(retried.getRedriveAttempts()).isEqualTo(MAX_ATTEMPTS);
+        verify(orderMessageSender).send(eq(JmsConfig.VALIDATE_ORDER_QUEUE), eq(retried.getId()), any());
+        verify(orderMessageSender, never()).send(anyString(), eq(exhausted.getId()), any());
+        verify(beerOrderManager).failStuckOrder(exhausted);
+        verify(beerOrderManager, never()).failStuckOrder(retried);
+    }
+
+    @Test
+    void scanResumesAfterTheLastOrderWhenTimestampsAreEqual() {
+        Timestamp sameTime = new Timestamp(1_000);
+        BeerOrder first = order(BeerOrderStatusEnum.ALLOCATION_PENDING, 0, sameTime);
+        BeerOrder second = order(BeerOrderStatusEnum.ALLOCATION_PENDING, 0, sameTime);
+        BeerOrder third = order(BeerOrderStatusEnum.ALLOCATION_PENDING, 0, sameTime);
+
+        // a full batch, so the scan goes on from (sameTime, second) and finds the order with the same time
+        stuck(BeerOrderStatusEnum.ALLOCATION_PENDING, EPOCH, NO_ID, first, second);
+        stuck(BeerOrderStatusEnum.ALLOCATION_PENDING, sameTime, second.getId(), third);
+
+        stuckOrderSweeper.sweep();
+
+        verify(beerOrderRepository).findStuckOrders(eq(BeerOrderStatusEnum.ALLOCATION_PENDING), any(),
+                eq(sameTime), eq(second.getId()), any());
+        verify(orderMessageSender).send(eq(JmsConfig.ALLOCATE_ORDER_QUEUE), eq(first.getId()), any());
+        verify(orderMessageSender).send(eq(JmsConfig.ALLOCATE_ORDER_QUEUE), eq(second.getId()), any());
+        verify(orderMessageSender).send(eq(JmsConfig.ALLOCATE_ORDER_QUEUE), eq(third.getId()), any());
+    }
+
+    @Test
+    void newOrderIsQueuedAgainHoweverOftenItWasBefore() {
+        BeerOrder lost = order(BeerOrderStatusEnum.NEW, MAX_ATTEMPTS + 5);
+        stuck(BeerOrderStatusEnum.NEW, EPOCH, NO_ID, lost);
+
+        stuckOrderSweeper.sweep();
+
+        verify(fairOrderDispatcher).enqueue(lost.getId(), lost.getCustomer().getId());
+        verify(beerOrderManager, never()).failStuckOrder(any());
+        assertThat(lost.getRedriveAttempts()).isEqualTo(MAX_ATTEMPTS + 6);
+    }
+
+    @Test
+    void orderWhoseResultArrivedSinceTheScanIsLeftAlone() {
+        BeerOrder answered = order(BeerOrderStatusEnum.VALIDATION_PENDING, 0);
+        stuck(BeerOrderStatusEnum.VALIDATION_PENDING, EPOCH, NO_ID, answered);
+        answered.setOrderStatus(BeerOrderStatusEnum.VALIDATED);
+
+        stuckOrderSweeper.sweep();
+
+        verifyNoInteractions(orderMessageSender);
+        assertThat(answered.getRedriveAttempts()).isZero();
+    }
+
+    @Test
+    void sweepIsSkippedWithoutTheLease() {
+        when(schedulerLeases.tryAcquire(eq(StuckOrderSweeper.LEASE_NAME), any())).thenReturn(false);
+
+        stuckOrderSweeper.sweep();
+
+        verifyNoInteractions(beerOrderRepository, orderMessageSender, fairOrderDispatcher);
+    }
+
+    /**
+     * Makes the orders the page of the scan of the status after the position, and loadable by id.
+     */
+    private void stuck(BeerOrderStatusEnum status, Timestamp after, UUID afterId, BeerOrder... beerOrders) {
+        List<StuckOrderRef> page = Arrays.stream(beerOrders).map(beerOrder -> {
+            StuckOrderRef ref = mock(StuckOrderRef.class);
+            when(ref.getId()).thenReturn(beerOrder.getId());
+            when(ref.getLastModifiedDate()).thenReturn(beerOrder.getLastModifiedDate());
+            return ref;
+        }).collect(Collectors.toList());
+
+        when(beerOrderRepository.findStuckOrders(eq(status), any(), eq(after), eq(afterId), any())).thenReturn(page);
+
+        Collection<UUID> ids = page.stream().map(StuckOrderRef::getId).collect(Collectors.toList());
+        when(beerOrderRepository.findAllWithLinesByIdIn(ids)).thenReturn(List.of(beerOrders));
+    }
+
+    private static BeerOrder order(BeerOrderStatusEnum status, int redriveAttempts) {
+        return order(status, redriveAttempts, new Timestamp(System.currentTimeMillis()));
+    }
+
+    private static BeerOrder order(BeerOrderStatusEnum status, int redriveAttempts, Timestamp lastModifiedDate) {
+        BeerOrder beerOrder = new BeerOrder();
+        beerOrder.setId(UUID.randomUUID());
+        beerOrder.setCustomer(Customer.builder().id(UUID.randomUUID()).build());
+        beerOrder.setOrderStatus(status);
+        beerOrder.setRedriveAttempts(redriveAttempts);
+        beerOrder.setLastModifiedDate(lastModifiedDate);
+        return beerOrder;
+    }
+}
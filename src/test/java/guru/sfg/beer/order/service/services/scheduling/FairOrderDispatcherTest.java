@@ -0,0 +1,110 @@
+package guru.sfg.beer.order.service.services.scheduling;
+
+import guru.sfg.beer.order.service.metrics.BeerOrderMetrics;
+import guru.sfg.beer.order.service.metrics.OrderStatusGauges;
+import guru.sfg.beer.order.service.services.BeerOrderManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Deficit round robin over customer queues: each round a customer is sent up to its weight in orders.
+ */
+class FairOrderDispatcherTest {
+
+    static final int ORDERS_PER_CUSTOMER = 40;
+
+    UUID heavyCustomer = UUID.randomUUID();
+    UUID lightCustomer = UUID.randomUUID();
+    UUID unweightedCustomer = UUID.randomUUID();
+
+    Map<UUID, UUID> customerOfOrder = new HashMap<>();
+    List<UUID> dispatchedCustomers = new CopyOnWriteArrayList<>();
+    CountDownLatch fiveRounds = new CountDownLatch(25);
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    FairOrderDispatcher fairOrderDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        BeerOrderManager beerOrderManager = mock(BeerOrderManager.class);
+        doAnswer(invocation -> {
+            dispatchedCustomers.add(customerOfOrder.get(invocation.<UUID>getArgument(0)));
+            fiveRounds.countDown();
+            return null;
+        }).when(beerOrderManager).validateOrder(any());
+
+        FairQueueProperties fairQueueProperties = new FairQueueProperties();
+        // one dispatch at a time, so orders are sent in exactly the order they are taken
+        fairQueueProperties.setDispatchThreads(1);
+        fairQueueProperties.getWeights().put(heavyCustomer, 3);
+        fairQueueProperties.getWeights().put(lightCustomer, 1);
+
+        fairOrderDispatcher = new FairOrderDispatcher(beerOrderManager, mock(OrderStatusGauges.class),
+                fairQueueProperties, new BeerOrderMetrics(meterRegistry));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        fairOrderDispatcher.stop();
+    }
+
+    @Test
+    void customersAreServedInProportionToTheirWeights() throws InterruptedException {
+        for (int i = 0; i < ORDERS_PER_CUSTOMER; i++) {
+            enqueue(heavyCustomer);
+            enqueue(lightCustomer);
+            enqueue(unweightedCustomer);
+        }
+
+        fairOrderDispatcher.start();
+        assertThat(fiveRounds.await(10, TimeUnit.SECONDS)).isTrue();
+
+        List<UUID> firstRounds = dispatchedCustomers.subList(0, 25);
+        assertThat(firstRounds.subList(0, 5))
+                .containsExactly(heavyCustomer, heavyCustomer, heavyCustomer, lightCustomer, unweightedCustomer);
+        assertThat(firstRounds).filteredOn(heavyCustomer::equals).hasSize(15);
+        assertThat(firstRounds).filteredOn(lightCustomer::equals).hasSize(5);
+        assertThat(firstRounds).filteredOn(unweightedCustomer::equals).hasSize(5);
+    }
+
+    @Test
+    void delayIsReportedPerWeightedCustomer() throws InterruptedException {
+        for (int i = 0; i < ORDERS_PER_CUSTOMER; i++) {
+            enqueue(heavyCustomer);
+            enqueue(lightCustomer);
+            enqueue(unweightedCustomer);
+        }
+
+        fairOrderDispatcher.start();
+        assertThat(fiveRounds.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(meterRegistry.get(BeerOrderMetrics.PREFIX + ".fair.queue.delay")
+                .tag("customer", heavyCustomer.toString()).timer().count()).isPositive();
+        assertThat(meterRegistry.get(BeerOrderMetrics.PREFIX + ".fair.queue.delay")
+                .tag("customer", FairOrderDispatcher.OTHER_CUSTOMERS).timer().count()).isPositive();
+        assertThat(meterRegistry.find(BeerOrderMetrics.PREFIX + ".fair.queue.delay")
+                .tag("customer", unweightedCustomer.toString()).timer()).isNull();
+    }
+
+    private void enqueue(UUID customerId) {
+        UUID orderId = UUID.randomUUID();
+        customerOfOrder.put(orderId, customerId);
+        fairOrderDispatcher.enqueue(orderId, customerId);
+    }
+}
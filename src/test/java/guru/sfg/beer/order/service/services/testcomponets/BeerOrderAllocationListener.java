@@ -1,15 +1,20 @@
 package guru.sfg.beer.order.service.services.testcomponets;
 
 import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.beer.order.service.services.messaging.OrderMessageSender;
+import guru.sfg.beer.order.service.tracing.OrderTraceContext;
 import guru.sfg.brewery.model.events.AllocateOrderRequest;
 import guru.sfg.brewery.model.events.AllocateOrderResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 
+import javax.jms.JMSException;
+
 /**
  * Created by jt on 2/16/20.
  */
@@ -17,11 +22,19 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 @Component
 public class BeerOrderAllocationListener {
+    private static final String[] ECHOED_HEADERS = {OrderTraceContext.TRACE_ID_HEADER,
+            OrderTraceContext.PLACED_AT_HEADER, OrderTraceContext.SENT_AT_HEADER, OrderMessageSender.GROUP_ID_PROPERTY};
+
 
     private final JmsTemplate jmsTemplate;
 
+    @Value("${sfg.test.stub-latency-ms:0}")
+    private long stubLatencyMs;
+
     @JmsListener(destination = JmsConfig.ALLOCATE_ORDER_QUEUE)
     public void listen(Message msg){
+        simulateLatency();
+
         AllocateOrderRequest request = (AllocateOrderRequest) msg.getPayload();
         boolean pendingInventory = false;
         boolean allocationError = false;
@@ -54,7 +67,28 @@ public class BeerOrderAllocationListener {
                             .beerOrderDto(request.getBeerOrderDto())
                             .pendingInventory(pendingInventory)
                             .allocationError(allocationError)
-                            .build());
+                            .build(),
+                    message -> echoHeaders(msg, message));
+        }
+    }
+
+    private javax.jms.Message echoHeaders(Message<?> request, javax.jms.Message response) throws JMSException {
+        for (String header : ECHOED_HEADERS) {
+            Object value = request.getHeaders().get(header);
+            if (value != null) {
+                response.setObjectProperty(header, value);
+            }
+        }
+        return response;
+    }
+
+    private void simulateLatency() {
+        if (stubLatencyMs > 0) {
+            try {
+                Thread.sleep(stubLatencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 }
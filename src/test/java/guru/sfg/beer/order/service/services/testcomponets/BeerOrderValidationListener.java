@@ -1,15 +1,20 @@
 package guru.sfg.beer.order.service.services.testcomponets;
 
 import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.beer.order.service.services.messaging.OrderMessageSender;
+import guru.sfg.beer.order.service.tracing.OrderTraceContext;
 import guru.sfg.brewery.model.events.ValidateOrderRequest;
 import guru.sfg.brewery.model.events.ValidateOrderResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 
+import javax.jms.JMSException;
+
 /**
  * Created by jt on 2/15/20.
  */
@@ -17,10 +22,18 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 @Component
 public class BeerOrderValidationListener {
+    private static final String[] ECHOED_HEADERS = {OrderTraceContext.TRACE_ID_HEADER,
+            OrderTraceContext.PLACED_AT_HEADER, OrderTraceContext.SENT_AT_HEADER, OrderMessageSender.GROUP_ID_PROPERTY};
+
     private final JmsTemplate jmsTemplate;
 
+    @Value("${sfg.test.stub-latency-ms:0}")
+    private long stubLatencyMs;
+
     @JmsListener(destination = JmsConfig.VALIDATE_ORDER_QUEUE)
     public void list(Message msg){
+        simulateLatency();
+
         boolean isValid = true;
         boolean sendResponse = true;
 
@@ -40,7 +53,28 @@ public class BeerOrderValidationListener {
                     ValidateOrderResult.builder()
                             .isValid(isValid)
                             .orderId(request.getBeerOrder().getId())
-                            .build());
+                            .build(),
+                    message -> echoHeaders(msg, message));
+        }
+    }
+
+    private javax.jms.Message echoHeaders(Message<?> request, javax.jms.Message response) throws JMSException {
+        for (String header : ECHOED_HEADERS) {
+            Object value = request.getHeaders().get(header);
+            if (value != null) {
+                response.setObjectProperty(header, value);
+            }
+        }
+        return response;
+    }
+
+    private void simulateLatency() {
+        if (stubLatencyMs > 0) {
+            try {
+                Thread.sleep(stubLatencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 }
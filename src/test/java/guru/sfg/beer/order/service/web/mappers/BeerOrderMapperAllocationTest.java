@@ -0,0 +1,194 @@
+package guru.sfg.beer.order.service.web.mappers;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderLine;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.services.beer.BeerService;
+import guru.sfg.brewery.model.BeerDto;
+import guru.sfg.brewery.model.BeerOrderDto;
+import guru.sfg.brewery.model.CustomerDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Guards the allocation budget of the mapping layer. Budgets are bytes allocated on the calling thread
+ * per conversion, measured with the HotSpot thread allocation counters after JIT warm up.
+ */
+@SpringJUnitConfig(BeerOrderMapperAllocationTest.MapperConfig.class)
+class BeerOrderMapperAllocationTest {
+
+    static final int WARMUP_ITERATIONS = 20_000;
+    static final int MEASURED_ITERATIONS = 10_000;
+
+    static final long MAX_BYTES_PER_DATE_CONVERSION = 128;
+    static final long MAX_BYTES_PER_TIMESTAMP_CONVERSION = 64;
+    static final long MAX_BYTES_PER_CUSTOMER = 512;
+    static final long MAX_BYTES_PER_ORDER = 2048; // three line order
+
+    @Configuration
+    @ComponentScan(basePackageClasses = BeerOrderMapper.class)
+    static class MapperConfig {
+        @Bean
+        BeerService beerService() {
+            Optional<BeerDto> beer = Optional.of(BeerDto.builder()
+                    .id(UUID.randomUUID())
+                    .beerName("Mango Bobs")
+                    .beerStyle("IPA")
+                    .price(new BigDecimal("12.95"))
+                    .build());
+
+            return new BeerService() {
+                @Override
+                public Optional<BeerDto> getBeerById(UUID uuid) {
+                    return beer;
+                }
+
+                @Override
+                public Optional<BeerDto> getBeerByUpc(String upc) {
+                    return beer;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    BeerOrderMapper beerOrderMapper;
+
+    @Autowired
+    CustomerMapper customerMapper;
+
+    @Autowired
+    DateMapper dateMapper;
+
+    com.sun.management.ThreadMXBean threadMXBean;
+
+    BeerOrder beerOrder;
+
+    Customer customer;
+
+    volatile Object sink;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+
+        Timestamp now = Timestamp.valueOf("2020-03-07 10:15:30.123456789");
+
+        customer = Customer.builder()
+                .id(UUID.randomUUID())
+                .version(1L)
+                .createdDate(now)
+                .lastModifiedDate(now)
+                .customerName("Tasting Room")
+                .build();
+
+        beerOrder = BeerOrder.builder()
+                .id(UUID.randomUUID())
+                .version(3L)
+                .createdDate(now)
+                .lastModifiedDate(now)
+                .customer(customer)
+                .customerRef("ref-1")
+                .orderStatus(BeerOrderStatusEnum.ALLOCATED)
+                .build();
+
+        Set<BeerOrderLine> lines = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            lines.add(BeerOrderLine.builder()
+                    .id(UUID.randomUUID())
+                    .version(1L)
+                    .createdDate(now)
+                    .lastModifiedDate(now)
+                    .beerOrder(beerOrder)
+                    .upc("063123420003" + i)
+                    .orderQuantity(5)
+                    .quantityAllocated(5)
+                    .build());
+        }
+        beerOrder.setBeerOrderLines(lines);
+    }
+
+    @Test
+    void dateConversionRoundTrips() {
+        OffsetDateTime offsetDateTime = OffsetDateTime.of(2020, 3, 7, 10, 15, 30, 123456789, ZoneOffset.UTC);
+
+        Timestamp timestamp = dateMapper.asTimestamp(offsetDateTime);
+
+        assertThat(timestamp.toInstant()).isEqualTo(offsetDateTime.toInstant());
+        assertThat(dateMapper.asOffsetDateTime(timestamp)).isEqualTo(offsetDateTime);
+        assertThat(dateMapper.asOffsetDateTime(null)).isNull();
+        assertThat(dateMapper.asTimestamp(null)).isNull();
+    }
+
+    @Test
+    void dateConversionAllocation() {
+        Timestamp timestamp = beerOrder.getCreatedDate();
+        OffsetDateTime offsetDateTime = dateMapper.asOffsetDateTime(timestamp);
+
+        assertThat(bytesPerIteration(() -> sink = dateMapper.asOffsetDateTime(timestamp)))
+                .isLessThanOrEqualTo(MAX_BYTES_PER_DATE_CONVERSION);
+        assertThat(bytesPerIteration(() -> sink = dateMapper.asTimestamp(offsetDateTime)))
+                .isLessThanOrEqualTo(MAX_BYTES_PER_TIMESTAMP_CONVERSION);
+    }
+
+    @Test
+    void customerMappingAllocation() {
+        CustomerDto customerDto = customerMapper.customerToDto(customer);
+
+        assertThat(customerDto.getId()).isEqualTo(customer.getId());
+        assertThat(customerDto.getCustomerName()).isEqualTo(customer.getCustomerName());
+
+        assertThat(bytesPerIteration(() -> sink = customerMapper.customerToDto(customer)))
+                .isLessThanOrEqualTo(MAX_BYTES_PER_CUSTOMER);
+    }
+
+    @Test
+    void beerOrderMappingAllocation() {
+        BeerOrderDto beerOrderDto = beerOrderMapper.beerOrderToDto(beerOrder);
+
+        assertThat(beerOrderDto.getId()).isEqualTo(beerOrder.getId());
+        assertThat(beerOrderDto.getCustomerId()).isEqualTo(customer.getId());
+        assertThat(beerOrderDto.getOrderStatus()).isEqualTo(BeerOrderStatusEnum.ALLOCATED.name());
+        assertThat(beerOrderDto.getBeerOrderLines()).hasSize(3)
+                .allSatisfy(line -> assertThat(line.getBeerName()).isEqualTo("Mango Bobs"));
+
+        assertThat(bytesPerIteration(() -> sink = beerOrderMapper.beerOrderToDto(beerOrder)))
+                .isLessThanOrEqualTo(MAX_BYTES_PER_ORDER);
+    }
+
+    long bytesPerIteration(Runnable task) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            task.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            task.run();
+        }
+
+        return (threadMXBean.getThreadAllocatedBytes(threadId) - before) / MEASURED_ITERATIONS;
+    }
+}